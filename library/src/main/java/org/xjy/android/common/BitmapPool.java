@@ -0,0 +1,149 @@
+package org.xjy.android.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+
+public class BitmapPool {
+    private static final int DEFAULT_MAX_SIZE = 8 * 1024 * 1024;
+
+    private static BitmapPool sDefault;
+
+    private final LinkedHashMap<Key, ArrayList<Bitmap>> mGroups = new LinkedHashMap<>(16, 0.75f, true);
+    private final Key mLookupKey = new Key();
+    private int mMaxSize;
+    private int mSize;
+
+    public static synchronized BitmapPool getDefault() {
+        if (sDefault == null) {
+            sDefault = new BitmapPool(DEFAULT_MAX_SIZE);
+        }
+        return sDefault;
+    }
+
+    public BitmapPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid max size " + maxSize + ". Must be >= 0");
+        }
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Returns a mutable bitmap of exactly the requested size and config, cleared to transparent. A pooled bitmap is
+     * reused when one is available, otherwise a new one is allocated.
+     */
+    @NonNull
+    public Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            ArrayList<Bitmap> group = mGroups.get(mLookupKey.set(width, height, config));
+            if (group != null) {
+                int size = group.size();
+                if (size > 0) {
+                    bitmap = group.remove(size - 1);
+                    mSize -= BitmapUtils.getByteCount(bitmap);
+                }
+            }
+        }
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    public void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int byteCount = BitmapUtils.getByteCount(bitmap);
+        if (!bitmap.isMutable() || bitmap.getConfig() == null || byteCount > mMaxSize) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            ArrayList<Bitmap> group = mGroups.get(mLookupKey.set(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()));
+            if (group == null) {
+                group = new ArrayList<>();
+                mGroups.put(new Key().set(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()), group);
+            }
+            group.add(bitmap);
+            mSize += byteCount;
+            trimToSize(mMaxSize);
+        }
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid max size " + maxSize + ". Must be >= 0");
+        }
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int getSize() {
+        return mSize;
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<Key, ArrayList<Bitmap>>> iterator = mGroups.entrySet().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            ArrayList<Bitmap> group = iterator.next().getValue();
+            while (mSize > maxSize && group.size() > 0) {
+                Bitmap bitmap = group.remove(0);
+                mSize -= BitmapUtils.getByteCount(bitmap);
+                bitmap.recycle();
+            }
+            if (group.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Key {
+        private int mWidth;
+        private int mHeight;
+        private Bitmap.Config mConfig;
+
+        Key set(int width, int height, Bitmap.Config config) {
+            mWidth = width;
+            mHeight = height;
+            mConfig = config;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mWidth == key.mWidth && mHeight == key.mHeight && mConfig == key.mConfig;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mWidth;
+            result = 31 * result + mHeight;
+            result = 31 * result + (mConfig != null ? mConfig.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -1,10 +1,667 @@
 package org.xjy.android.common;
 
+import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
 
 public class BitmapUtils {
-    
+    public static final int MAX_BLUR_RADIUS = 254;
+    public static final int DEFAULT_BLUR_SAMPLE_SIZE = 8;
+
+    private static final int MUL_SHIFT = 24;
+    private static final int BANDS_PER_THREAD = 4;
+    private static final int MIN_LINES_PER_BAND = 16;
+
+    private static volatile Executor sBlurExecutor;
+
+    private static final ThreadLocal<BlurBuffer> sBlurBuffer = new ThreadLocal<BlurBuffer>() {
+        @Override
+        protected BlurBuffer initialValue() {
+            return new BlurBuffer();
+        }
+    };
+
     public static void blur(Bitmap bitmap, int radius) {
-        // TODO: 2018/5/22
+        if (radius < 1) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            throw new IllegalArgumentException("Bitmap must be mutable");
+        }
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        BlurBuffer buffer = sBlurBuffer.get();
+        int[] pixels = buffer.obtainPixels(width * height);
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        blur(pixels, width, height, radius);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+    }
+
+    public static void blur(int[] pixels, int width, int height, int radius) {
+        if (radius < 1 || width <= 0 || height <= 0) {
+            return;
+        }
+        radius = Math.min(radius, MAX_BLUR_RADIUS);
+        int[] stack = sBlurBuffer.get().obtainStack(radius);
+        blurRows(pixels, width, height, radius, 0, height, stack);
+        blurColumns(pixels, width, height, radius, 0, width, stack);
+    }
+
+    /**
+     * Downsamples {@code source} by {@code sampleSize} and blurs the result at the equivalent radius. The returned
+     * bitmap is meant to be drawn scaled back up with bitmap filtering, e.g. through a {@code BitmapShader} whose local
+     * matrix scales by {@code sampleSize}.
+     */
+    public static Bitmap blurSampled(Bitmap source, int radius, int sampleSize) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Invalid sample size " + sampleSize + ". Must be >= 1");
+        }
+        int width = getBlurSampledSize(source.getWidth(), sampleSize);
+        int height = getBlurSampledSize(source.getHeight(), sampleSize);
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.scale(1f / sampleSize, 1f / sampleSize);
+        canvas.drawBitmap(source, 0, 0, new Paint(Paint.FILTER_BITMAP_FLAG));
+        blur(bitmap, getBlurSampledRadius(radius, sampleSize));
+        return bitmap;
+    }
+
+    /**
+     * Decodes only {@code region} of the image file, in image pixels or null for the whole image, directly at
+     * 1/{@code sampleSize} scale and blurs it at the equivalent radius, like {@link #blurSampled(Bitmap, int, int)}
+     * without ever holding the full size image. Returns null if the image cannot be decoded.
+     */
+    @Nullable
+    public static Bitmap decodeBlurred(String pathName, @Nullable Rect region, int radius, int sampleSize) {
+        try {
+            return decodeBlurred(BitmapRegionDecoder.newInstance(pathName, false), region, radius, sampleSize);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #decodeBlurred(String, Rect, int, int)} for an image stream, which is read but not closed.
+     */
+    @Nullable
+    public static Bitmap decodeBlurred(InputStream is, @Nullable Rect region, int radius, int sampleSize) {
+        try {
+            return decodeBlurred(BitmapRegionDecoder.newInstance(is, false), region, radius, sampleSize);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #decodeBlurred(String, Rect, int, int)} for a raw image resource; {@code region} is in the pixels of
+     * the resource file, without density scaling.
+     */
+    @Nullable
+    public static Bitmap decodeBlurred(Resources res, @DrawableRes int id, @Nullable Rect region, int radius, int sampleSize) {
+        InputStream is = null;
+        try {
+            is = res.openRawResource(id);
+            return decodeBlurred(is, region, radius, sampleSize);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static Bitmap decodeBlurred(BitmapRegionDecoder decoder, @Nullable Rect region, int radius, int sampleSize) {
+        try {
+            if (sampleSize < 1) {
+                throw new IllegalArgumentException("Invalid sample size " + sampleSize + ". Must be >= 1");
+            }
+            Rect rect = region == null ? new Rect(0, 0, decoder.getWidth(), decoder.getHeight()) : new Rect(region);
+            if (!rect.intersect(0, 0, decoder.getWidth(), decoder.getHeight())) {
+                return null;
+            }
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            options.inSampleSize = Integer.highestOneBit(sampleSize);
+            Bitmap decoded = decoder.decodeRegion(rect, options);
+            if (decoded == null) {
+                return null;
+            }
+            int width = getBlurSampledSize(rect.width(), sampleSize);
+            int height = getBlurSampledSize(rect.height(), sampleSize);
+            Bitmap bitmap = decoded;
+            if (decoded.getWidth() != width || decoded.getHeight() != height || !decoded.isMutable()
+                    || decoded.getConfig() != Bitmap.Config.ARGB_8888) {
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                new Canvas(bitmap).drawBitmap(decoded, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+                decoded.recycle();
+            }
+            blur(bitmap, getBlurSampledRadius(radius, sampleSize));
+            return bitmap;
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    public static int getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    public static int getBlurSampledSize(int size, int sampleSize) {
+        return Math.max(1, (size + sampleSize - 1) / sampleSize);
+    }
+
+    public static int getBlurSampledRadius(int radius, int sampleSize) {
+        return radius < 1 ? 0 : Math.max(1, Math.round((float) radius / sampleSize));
+    }
+
+    /**
+     * Blurs {@code bitmap} in place one row at a time, keeping only a ring of {@code radius * 2 + 1} horizontally
+     * blurred rows, so the extra memory is O(width * radius) instead of O(width * height).
+     */
+    public static void blurStreaming(final Bitmap bitmap, int radius) {
+        if (radius < 1) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            throw new IllegalArgumentException("Bitmap must be mutable");
+        }
+        blurStreaming(bitmap, bitmap, radius);
+    }
+
+    public static void blurStreaming(final Bitmap source, final Bitmap destination, int radius) {
+        final int width = source.getWidth();
+        int height = source.getHeight();
+        if (destination.getWidth() != width || destination.getHeight() != height) {
+            throw new IllegalArgumentException("Destination must be " + width + "x" + height);
+        }
+        blurStreaming(new RowReader() {
+            @Override
+            public void readRow(int y, int[] row, int offset) {
+                source.getPixels(row, offset, width, 0, y, width, 1);
+            }
+        }, new RowWriter() {
+            @Override
+            public void writeRow(int y, int[] row, int offset) {
+                destination.setPixels(row, offset, width, 0, y, width, 1);
+            }
+        }, width, height, radius);
+    }
+
+    /**
+     * Streams a blur from {@code reader} to {@code writer}. Rows are read in order, each at most once, and row
+     * {@code y} is written only after rows up to {@code y + radius} have been read, so both may be backed by the same
+     * image.
+     */
+    public static void blurStreaming(RowReader reader, RowWriter writer, int width, int height, int radius) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        radius = Math.max(0, Math.min(radius, MAX_BLUR_RADIUS));
+        BlurBuffer buffer = sBlurBuffer.get();
+        int div = radius * 2 + 1;
+        long mul = ((1L << MUL_SHIFT) + (radius + 1) * (radius + 1) / 2) / ((radius + 1) * (radius + 1));
+        int last = height - 1;
+        int[] stack = buffer.obtainStack(radius);
+        int[] ring = buffer.obtainRing(div * width);
+        int[] sums = buffer.obtainColumnSums(width * 12);
+        int[] out = buffer.obtainRow(width);
+
+        reader.readRow(0, ring, 0);
+        if (radius > 0) {
+            stackBlurLine(ring, 0, 1, width, radius, stack);
+        }
+        for (int i = 1; i <= radius; i++) {
+            System.arraycopy(ring, 0, ring, i * width, width);
+        }
+        int readRow = 0;
+        for (int i = 0; i <= radius; i++) {
+            accumulateRow(ring, i * width, sums, width, radius + 1 - i, false);
+        }
+        for (int i = 1; i <= radius; i++) {
+            int slot = (radius + i) * width;
+            if (i <= last) {
+                reader.readRow(i, ring, slot);
+                stackBlurLine(ring, slot, 1, width, radius, stack);
+                readRow = i;
+            } else {
+                System.arraycopy(ring, slot - width, ring, slot, width);
+            }
+            accumulateRow(ring, slot, sums, width, radius + 1 - i, true);
+        }
+
+        int stackPointer = radius;
+        int lastSlot = radius * 2;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0, base = 0; x < width; x++, base += 12) {
+                out[x] = (int) ((sums[base] * mul) >>> MUL_SHIFT) << 24
+                        | (int) ((sums[base + 1] * mul) >>> MUL_SHIFT) << 16
+                        | (int) ((sums[base + 2] * mul) >>> MUL_SHIFT) << 8
+                        | (int) ((sums[base + 3] * mul) >>> MUL_SHIFT);
+            }
+            writer.writeRow(y, out, 0);
+            if (y == last) {
+                break;
+            }
+
+            int stackStart = stackPointer + radius + 1;
+            if (stackStart >= div) {
+                stackStart -= div;
+            }
+            int slot = stackStart * width;
+            for (int x = 0, base = 0, index = slot; x < width; x++, base += 12, index++) {
+                int p = ring[index];
+                sums[base] -= sums[base + 8];
+                sums[base + 1] -= sums[base + 9];
+                sums[base + 2] -= sums[base + 10];
+                sums[base + 3] -= sums[base + 11];
+                sums[base + 8] -= p >>> 24;
+                sums[base + 9] -= (p >> 16) & 0xff;
+                sums[base + 10] -= (p >> 8) & 0xff;
+                sums[base + 11] -= p & 0xff;
+            }
+            int next = y + radius + 1;
+            if (next <= last && next > readRow) {
+                reader.readRow(next, ring, slot);
+                if (radius > 0) {
+                    stackBlurLine(ring, slot, 1, width, radius, stack);
+                }
+                readRow = next;
+            } else if (slot != lastSlot * width) {
+                System.arraycopy(ring, lastSlot * width, ring, slot, width);
+            }
+            lastSlot = stackStart;
+            for (int x = 0, base = 0, index = slot; x < width; x++, base += 12, index++) {
+                int p = ring[index];
+                sums[base + 4] += p >>> 24;
+                sums[base + 5] += (p >> 16) & 0xff;
+                sums[base + 6] += (p >> 8) & 0xff;
+                sums[base + 7] += p & 0xff;
+                sums[base] += sums[base + 4];
+                sums[base + 1] += sums[base + 5];
+                sums[base + 2] += sums[base + 6];
+                sums[base + 3] += sums[base + 7];
+            }
+
+            stackPointer++;
+            if (stackPointer >= div) {
+                stackPointer = 0;
+            }
+            for (int x = 0, base = 0, index = stackPointer * width; x < width; x++, base += 12, index++) {
+                int p = ring[index];
+                int a = p >>> 24;
+                int r = (p >> 16) & 0xff;
+                int g = (p >> 8) & 0xff;
+                int b = p & 0xff;
+                sums[base + 8] += a;
+                sums[base + 9] += r;
+                sums[base + 10] += g;
+                sums[base + 11] += b;
+                sums[base + 4] -= a;
+                sums[base + 5] -= r;
+                sums[base + 6] -= g;
+                sums[base + 7] -= b;
+            }
+        }
+    }
+
+    /**
+     * Adds a ring row to the per column sums. Each column keeps 12 ints: the weighted sum, the incoming sum and the
+     * outgoing sum, for each of the 4 channels.
+     */
+    private static void accumulateRow(int[] ring, int offset, int[] sums, int width, int weight, boolean incoming) {
+        int side = incoming ? 4 : 8;
+        for (int x = 0, base = 0, index = offset; x < width; x++, base += 12, index++) {
+            int p = ring[index];
+            int a = p >>> 24;
+            int r = (p >> 16) & 0xff;
+            int g = (p >> 8) & 0xff;
+            int b = p & 0xff;
+            sums[base] += a * weight;
+            sums[base + 1] += r * weight;
+            sums[base + 2] += g * weight;
+            sums[base + 3] += b * weight;
+            sums[base + side] += a;
+            sums[base + side + 1] += r;
+            sums[base + side + 2] += g;
+            sums[base + side + 3] += b;
+        }
+    }
+
+    public static void blurParallel(Bitmap bitmap, int radius) {
+        blurParallel(bitmap, radius, null, 0);
+    }
+
+    /**
+     * Same as {@link #blur(Bitmap, int)}, but the horizontal and vertical passes are split into bands that run on
+     * {@code executor} (a shared {@link ForkJoinPool} when null) and on the calling thread. At most {@code maxThreads}
+     * threads work on one blur, including the caller; values <= 0 leave one core free for the render thread.
+     */
+    public static void blurParallel(Bitmap bitmap, int radius, @Nullable Executor executor, int maxThreads) {
+        if (radius < 1) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            throw new IllegalArgumentException("Bitmap must be mutable");
+        }
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = sBlurBuffer.get().obtainPixels(width * height);
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        blurParallel(pixels, width, height, radius, executor, maxThreads);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+    }
+
+    public static void blurParallel(int[] pixels, int width, int height, int radius, @Nullable Executor executor, int maxThreads) {
+        if (radius < 1 || width <= 0 || height <= 0) {
+            return;
+        }
+        radius = Math.min(radius, MAX_BLUR_RADIUS);
+        int threads = maxThreads > 0 ? maxThreads : getDefaultBlurParallelism();
+        if (threads == 1) {
+            blur(pixels, width, height, radius);
+            return;
+        }
+        if (executor == null) {
+            executor = getDefaultBlurExecutor();
+        }
+        new BandTask(pixels, width, height, radius, false, threads).execute(executor);
+        new BandTask(pixels, width, height, radius, true, threads).execute(executor);
+    }
+
+    private static int getDefaultBlurParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    private static Executor getDefaultBlurExecutor() {
+        if (sBlurExecutor == null) {
+            synchronized (BitmapUtils.class) {
+                if (sBlurExecutor == null) {
+                    int parallelism = getDefaultBlurParallelism();
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                        sBlurExecutor = new ForkJoinPool(parallelism);
+                    } else {
+                        sBlurExecutor = Executors.newFixedThreadPool(parallelism);
+                    }
+                }
+            }
+        }
+        return sBlurExecutor;
+    }
+
+    static void blurRows(int[] pixels, int width, int height, int radius, int fromRow, int toRow, int[] stack) {
+        for (int y = fromRow; y < toRow; y++) {
+            stackBlurLine(pixels, y * width, 1, width, radius, stack);
+        }
+    }
+
+    static void blurColumns(int[] pixels, int width, int height, int radius, int fromColumn, int toColumn, int[] stack) {
+        for (int x = fromColumn; x < toColumn; x++) {
+            stackBlurLine(pixels, x, width, height, radius, stack);
+        }
+    }
+
+    /**
+     * Blurs one scanline of {@code length} pixels in place. Pixels ahead of the output position are only read before
+     * they are written and pixels behind it are kept in {@code stack}, so no line copy is needed.
+     */
+    static void stackBlurLine(int[] pixels, int offset, int step, int length, int radius, int[] stack) {
+        int div = radius * 2 + 1;
+        long mul = ((1L << MUL_SHIFT) + (radius + 1) * (radius + 1) / 2) / ((radius + 1) * (radius + 1));
+        int last = length - 1;
+
+        int sumA = 0, sumR = 0, sumG = 0, sumB = 0;
+        int inA = 0, inR = 0, inG = 0, inB = 0;
+        int outA = 0, outR = 0, outG = 0, outB = 0;
+        for (int i = -radius; i <= radius; i++) {
+            int p = pixels[offset + Math.min(Math.max(i, 0), last) * step];
+            stack[i + radius] = p;
+            int a = p >>> 24;
+            int r = (p >> 16) & 0xff;
+            int g = (p >> 8) & 0xff;
+            int b = p & 0xff;
+            int weight = radius + 1 - Math.abs(i);
+            sumA += a * weight;
+            sumR += r * weight;
+            sumG += g * weight;
+            sumB += b * weight;
+            if (i > 0) {
+                inA += a;
+                inR += r;
+                inG += g;
+                inB += b;
+            } else {
+                outA += a;
+                outR += r;
+                outG += g;
+                outB += b;
+            }
+        }
+
+        int stackPointer = radius;
+        int index = offset;
+        for (int x = 0; x < length; x++) {
+            pixels[index] = (int) ((sumA * mul) >>> MUL_SHIFT) << 24
+                    | (int) ((sumR * mul) >>> MUL_SHIFT) << 16
+                    | (int) ((sumG * mul) >>> MUL_SHIFT) << 8
+                    | (int) ((sumB * mul) >>> MUL_SHIFT);
+            index += step;
+
+            sumA -= outA;
+            sumR -= outR;
+            sumG -= outG;
+            sumB -= outB;
+
+            int stackStart = stackPointer + radius + 1;
+            if (stackStart >= div) {
+                stackStart -= div;
+            }
+            int p = stack[stackStart];
+            outA -= p >>> 24;
+            outR -= (p >> 16) & 0xff;
+            outG -= (p >> 8) & 0xff;
+            outB -= p & 0xff;
+
+            p = pixels[offset + Math.min(x + radius + 1, last) * step];
+            stack[stackStart] = p;
+            inA += p >>> 24;
+            inR += (p >> 16) & 0xff;
+            inG += (p >> 8) & 0xff;
+            inB += p & 0xff;
+
+            sumA += inA;
+            sumR += inR;
+            sumG += inG;
+            sumB += inB;
+
+            stackPointer++;
+            if (stackPointer >= div) {
+                stackPointer = 0;
+            }
+            p = stack[stackPointer];
+            int a = p >>> 24;
+            int r = (p >> 16) & 0xff;
+            int g = (p >> 8) & 0xff;
+            int b = p & 0xff;
+            outA += a;
+            outR += r;
+            outG += g;
+            outB += b;
+            inA -= a;
+            inR -= r;
+            inG -= g;
+            inB -= b;
+        }
+    }
+
+    public interface RowReader {
+        void readRow(int y, int[] row, int offset);
+    }
+
+    public interface RowWriter {
+        void writeRow(int y, int[] row, int offset);
+    }
+
+    private static class BandTask implements Runnable {
+        private final int[] mPixels;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mRadius;
+        private final boolean mColumns;
+        private final int mLineCount;
+        private final int mBandCount;
+        private final int mThreads;
+        private final AtomicInteger mNextBand = new AtomicInteger();
+        private final CountDownLatch mDoneSignal;
+        private final AtomicReference<Throwable> mFailure = new AtomicReference<>();
+
+        BandTask(int[] pixels, int width, int height, int radius, boolean columns, int threads) {
+            mPixels = pixels;
+            mWidth = width;
+            mHeight = height;
+            mRadius = radius;
+            mColumns = columns;
+            mLineCount = columns ? width : height;
+            mBandCount = Math.max(1, Math.min(threads * BANDS_PER_THREAD, mLineCount / MIN_LINES_PER_BAND));
+            mThreads = Math.min(threads, mBandCount);
+            mDoneSignal = new CountDownLatch(mBandCount);
+        }
+
+        void execute(Executor executor) {
+            for (int i = 1; i < mThreads; i++) {
+                executor.execute(this);
+            }
+            try {
+                run();
+            } catch (RuntimeException | Error e) {
+                //workers still own their bands, so wait for them before rethrowing
+                mFailure.compareAndSet(null, e);
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mDoneSignal.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable failure = mFailure.get();
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+
+        @Override
+        public void run() {
+            int[] stack = sBlurBuffer.get().obtainStack(mRadius);
+            int band;
+            while ((band = mNextBand.getAndIncrement()) < mBandCount) {
+                int from = (int) ((long) mLineCount * band / mBandCount);
+                int to = (int) ((long) mLineCount * (band + 1) / mBandCount);
+                try {
+                    if (mColumns) {
+                        blurColumns(mPixels, mWidth, mHeight, mRadius, from, to, stack);
+                    } else {
+                        blurRows(mPixels, mWidth, mHeight, mRadius, from, to, stack);
+                    }
+                } catch (RuntimeException | Error e) {
+                    //rethrown on the calling thread once every band is done
+                    mFailure.compareAndSet(null, e);
+                } finally {
+                    mDoneSignal.countDown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-thread scratch arrays, reused across blurs. Arrays over {@link #MAX_RETAINED_SIZE} ints are allocated for one
+     * blur and not kept, so a single large blur doesn't pin its buffer on the thread.
+     */
+    static class BlurBuffer {
+        private static final int MAX_RETAINED_SIZE = 256 * 1024;
+
+        private int[] mPixels;
+        private int[] mStack;
+        private int[] mRing;
+        private int[] mColumnSums;
+        private int[] mRow;
+
+        int[] obtainPixels(int size) {
+            if (size > MAX_RETAINED_SIZE) {
+                return new int[size];
+            }
+            if (mPixels == null || mPixels.length < size) {
+                mPixels = new int[size];
+            }
+            return mPixels;
+        }
+
+        int[] obtainStack(int radius) {
+            int size = radius * 2 + 1;
+            if (mStack == null || mStack.length < size) {
+                mStack = new int[size];
+            }
+            return mStack;
+        }
+
+        int[] obtainRing(int size) {
+            if (size > MAX_RETAINED_SIZE) {
+                return new int[size];
+            }
+            if (mRing == null || mRing.length < size) {
+                mRing = new int[size];
+            }
+            return mRing;
+        }
+
+        int[] obtainColumnSums(int size) {
+            if (size > MAX_RETAINED_SIZE) {
+                return new int[size];
+            }
+            if (mColumnSums == null || mColumnSums.length < size) {
+                mColumnSums = new int[size];
+            } else {
+                Arrays.fill(mColumnSums, 0, size, 0);
+            }
+            return mColumnSums;
+        }
+
+        int[] obtainRow(int size) {
+            if (mRow == null || mRow.length < size) {
+                mRow = new int[size];
+            }
+            return mRow;
+        }
     }
 }
@@ -0,0 +1,187 @@
+package org.xjy.android.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Stores blurred bitmaps as raw pixel files so they can be restored on a cold start without blurring again. Reads map
+ * the file and copy the pixels straight from the mapping into a pooled bitmap.
+ */
+public class BlurDiskCache {
+    private static final String DIRECTORY_NAME = "nebula-blur";
+    private static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+    private static final int MAGIC = 0x4e424c52;
+    private static final int HEADER_SIZE = 16;
+    private static final Bitmap.Config[] CONFIGS = {Bitmap.Config.ARGB_8888, Bitmap.Config.RGB_565};
+
+    private static BlurDiskCache sDefault;
+
+    private final File mDirectory;
+    private final long mMaxSize;
+
+    public static synchronized BlurDiskCache getDefault(Context context) {
+        if (sDefault == null) {
+            sDefault = new BlurDiskCache(new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME), DEFAULT_MAX_SIZE);
+        }
+        return sDefault;
+    }
+
+    public BlurDiskCache(@NonNull File directory, long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid max size " + maxSize + ". Must be > 0");
+        }
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    public static String buildKey(String sourceKey, int width, int height, int radius, int tint) {
+        return sourceKey + '|' + width + 'x' + height + '|' + radius + '|' + Integer.toHexString(tint);
+    }
+
+    /**
+     * Returns the bitmap stored under {@code key} in a bitmap taken from {@link BitmapPool#getDefault()}, or null when it
+     * is missing, unreadable or not {@code width} x {@code height}.
+     */
+    @Nullable
+    public Bitmap get(String key, int width, int height) {
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != width || buffer.getInt() != height) {
+                return null;
+            }
+            int config = buffer.getInt();
+            if (config < 0 || config >= CONFIGS.length) {
+                return null;
+            }
+            Bitmap bitmap = BitmapPool.getDefault().get(width, height, CONFIGS[config]);
+            if (buffer.remaining() < bitmap.getRowBytes() * height) {
+                BitmapPool.getDefault().put(bitmap);
+                return null;
+            }
+            bitmap.copyPixelsFromBuffer(buffer);
+            file.setLastModified(System.currentTimeMillis());
+            return bitmap;
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+    }
+
+    /**
+     * Writes {@code bitmap} under {@code key}. Should be called off the main thread; only ARGB_8888 and RGB_565 bitmaps
+     * are stored.
+     */
+    public void put(String key, Bitmap bitmap) {
+        int config = Arrays.asList(CONFIGS).indexOf(bitmap.getConfig());
+        if (config < 0 || (!mDirectory.isDirectory() && !mDirectory.mkdirs())) {
+            return;
+        }
+        File file = getFile(key);
+        File tempFile = new File(mDirectory, file.getName() + ".tmp");
+        int byteCount = bitmap.getRowBytes() * bitmap.getHeight();
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(tempFile, "rw");
+            randomAccessFile.setLength(HEADER_SIZE + byteCount);
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + byteCount);
+            buffer.putInt(MAGIC).putInt(bitmap.getWidth()).putInt(bitmap.getHeight()).putInt(config);
+            bitmap.copyPixelsToBuffer(buffer);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(randomAccessFile);
+            tempFile.delete();
+            return;
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+        if (tempFile.renameTo(file)) {
+            trimToSize();
+        } else {
+            tempFile.delete();
+        }
+    }
+
+    public void clear() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxSize) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && size > mMaxSize; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, hash(key));
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes());
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.xjy.android.common;
+
+import android.graphics.LinearGradient;
+import android.graphics.Shader;
+import android.util.LruCache;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Shares gradient shaders between drawables and views with the same geometry, colors, positions and tile mode, so
+ * identical list items don't each allocate their own. Returned shaders are shared: don't change their local matrix.
+ */
+public class ShaderCache {
+    private static final int MAX_SIZE = 64;
+
+    private static final LruCache<Key, Shader> sCache = new LruCache<>(MAX_SIZE);
+    private static final Key sLookupKey = new Key();
+    private static final int[] sTwoColors = new int[2];
+
+    @NonNull
+    public static synchronized LinearGradient getLinearGradient(float x0, float y0, float x1, float y1, int color0, int color1, @NonNull Shader.TileMode tile) {
+        sTwoColors[0] = color0;
+        sTwoColors[1] = color1;
+        return getLinearGradient(x0, y0, x1, y1, sTwoColors, null, tile);
+    }
+
+    @NonNull
+    public static synchronized LinearGradient getLinearGradient(float x0, float y0, float x1, float y1, @NonNull int[] colors, @Nullable float[] positions, @NonNull Shader.TileMode tile) {
+        Shader shader = sCache.get(sLookupKey.set(x0, y0, x1, y1, colors, positions, tile));
+        if (shader == null) {
+            shader = new LinearGradient(x0, y0, x1, y1, colors, positions, tile);
+            sCache.put(sLookupKey.copy(), shader);
+        }
+        return (LinearGradient) shader;
+    }
+
+    public static synchronized void clear() {
+        sCache.evictAll();
+    }
+
+    private static class Key {
+        private float mX0;
+        private float mY0;
+        private float mX1;
+        private float mY1;
+        private int[] mColors;
+        private float[] mPositions;
+        private Shader.TileMode mTile;
+        private int mHashCode;
+
+        Key set(float x0, float y0, float x1, float y1, int[] colors, float[] positions, Shader.TileMode tile) {
+            mX0 = x0;
+            mY0 = y0;
+            mX1 = x1;
+            mY1 = y1;
+            mColors = colors;
+            mPositions = positions;
+            mTile = tile;
+            int result = Float.floatToIntBits(x0);
+            result = 31 * result + Float.floatToIntBits(y0);
+            result = 31 * result + Float.floatToIntBits(x1);
+            result = 31 * result + Float.floatToIntBits(y1);
+            result = 31 * result + Arrays.hashCode(colors);
+            result = 31 * result + Arrays.hashCode(positions);
+            result = 31 * result + tile.hashCode();
+            mHashCode = result;
+            return this;
+        }
+
+        Key copy() {
+            return new Key().set(mX0, mY0, mX1, mY1, mColors.clone(), mPositions != null ? mPositions.clone() : null, mTile);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mX0 == key.mX0 && mY0 == key.mY0 && mX1 == key.mX1 && mY1 == key.mY1 && mTile == key.mTile
+                    && Arrays.equals(mColors, key.mColors) && Arrays.equals(mPositions, key.mPositions);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.xjy.android.nebula.animation;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * One {@link Choreographer} frame callback shared by every animated Nebula widget. Subscribers are called once per
+ * vsync with the frame time; the callback is only posted while at least one subscriber is registered. Main thread only.
+ */
+@MainThread
+public final class FrameClock implements Choreographer.FrameCallback {
+    private static FrameClock sInstance;
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    private boolean mPosted;
+    private boolean mDispatching;
+    private boolean mHasRemovedCallbacks;
+    private long mFrameTime = -1;
+
+    private FrameClock() {}
+
+    public static FrameClock getInstance() {
+        if (sInstance == null) {
+            sInstance = new FrameClock();
+        }
+        return sInstance;
+    }
+
+    public void subscribe(@NonNull Callback callback) {
+        if (mCallbacks.contains(callback)) {
+            return;
+        }
+        mCallbacks.add(callback);
+        if (!mPosted) {
+            mChoreographer.postFrameCallback(this);
+            mPosted = true;
+        }
+    }
+
+    public void unsubscribe(@NonNull Callback callback) {
+        int index = mCallbacks.indexOf(callback);
+        if (index < 0) {
+            return;
+        }
+        if (mDispatching) {
+            mCallbacks.set(index, null);
+            mHasRemovedCallbacks = true;
+        } else {
+            mCallbacks.remove(index);
+            if (mCallbacks.isEmpty() && mPosted) {
+                mChoreographer.removeFrameCallback(this);
+                mPosted = false;
+            }
+        }
+    }
+
+    public boolean isSubscribed(@NonNull Callback callback) {
+        return mCallbacks.contains(callback);
+    }
+
+    /**
+     * Returns the time of the frame being dispatched, in the {@link SystemClock#uptimeMillis()} time base, or the
+     * current time outside of a frame.
+     */
+    public long getFrameTime() {
+        return mFrameTime >= 0 ? mFrameTime : SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameTime = frameTimeNanos / 1000000;
+        mDispatching = true;
+        for (int i = 0, size = mCallbacks.size(); i < size; i++) {
+            Callback callback = mCallbacks.get(i);
+            if (callback != null) {
+                callback.onFrame(mFrameTime);
+            }
+        }
+        mDispatching = false;
+        mFrameTime = -1;
+        if (mHasRemovedCallbacks) {
+            for (int i = mCallbacks.size() - 1; i >= 0; i--) {
+                if (mCallbacks.get(i) == null) {
+                    mCallbacks.remove(i);
+                }
+            }
+            mHasRemovedCallbacks = false;
+        }
+        if (mCallbacks.isEmpty()) {
+            mPosted = false;
+        } else {
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    public interface Callback {
+        void onFrame(long frameTime);
+    }
+}
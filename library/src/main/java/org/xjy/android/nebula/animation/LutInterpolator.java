@@ -0,0 +1,113 @@
+package org.xjy.android.nebula.animation;
+
+import android.view.animation.Interpolator;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An interpolator backed by a table of evenly spaced samples, linearly interpolated between them, so evaluating it per
+ * frame is a table lookup. Instances are immutable and meant to be shared.
+ */
+public final class LutInterpolator implements Interpolator {
+    private static final int SAMPLE_COUNT = 256;
+
+    public static final LutInterpolator ACCELERATE_DECELERATE = of(new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) (Math.cos((input + 1) * Math.PI) / 2) + 0.5f;
+        }
+    });
+
+    public static final LutInterpolator QUINTIC_OUT = of(new Interpolator() {
+        @Override
+        public float getInterpolation(float t) {
+            t -= 1.0f;
+            return t * t * t * t * t + 1.0f;
+        }
+    });
+
+    private final float[] mSamples;
+
+    private LutInterpolator(float[] samples) {
+        mSamples = samples;
+    }
+
+    /**
+     * Samples {@code interpolator} over [0, 1].
+     */
+    public static LutInterpolator of(@NonNull Interpolator interpolator) {
+        float[] samples = new float[SAMPLE_COUNT + 1];
+        for (int i = 0; i <= SAMPLE_COUNT; i++) {
+            samples[i] = interpolator.getInterpolation((float) i / SAMPLE_COUNT);
+        }
+        return new LutInterpolator(samples);
+    }
+
+    /**
+     * Samples the cubic bezier from (0, 0) to (1, 1) with control points ({@code x1}, {@code y1}) and ({@code x2},
+     * {@code y2}), the curve of {@code PathInterpolatorCompat.create(x1, y1, x2, y2)}.
+     */
+    public static LutInterpolator ofCubicBezier(float x1, float y1, float x2, float y2) {
+        if (x1 < 0 || x1 > 1 || x2 < 0 || x2 > 1) {
+            throw new IllegalArgumentException("Invalid control point x " + x1 + ", " + x2 + ". Must be in [0, 1]");
+        }
+        float[] samples = new float[SAMPLE_COUNT + 1];
+        for (int i = 0; i <= SAMPLE_COUNT; i++) {
+            double t = solveCubicBezier((double) i / SAMPLE_COUNT, x1, x2);
+            samples[i] = (float) cubicBezier(t, y1, y2);
+        }
+        return new LutInterpolator(samples);
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input <= 0) {
+            return mSamples[0];
+        }
+        if (input >= 1) {
+            return mSamples[SAMPLE_COUNT];
+        }
+        float position = input * SAMPLE_COUNT;
+        int index = (int) position;
+        return mSamples[index] + (mSamples[index + 1] - mSamples[index]) * (position - index);
+    }
+
+    private static double cubicBezier(double t, double p1, double p2) {
+        double u = 1 - t;
+        return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+    }
+
+    /**
+     * Returns the curve parameter whose x is {@code x}; x is monotonic in t for control points within [0, 1].
+     */
+    private static double solveCubicBezier(double x, double x1, double x2) {
+        double low = 0;
+        double high = 1;
+        double t = x;
+        for (int i = 0; i < 8; i++) {
+            double error = cubicBezier(t, x1, x2) - x;
+            if (Math.abs(error) < 1e-7) {
+                return t;
+            }
+            double u = 1 - t;
+            double derivative = 3 * u * u * x1 + 6 * u * t * (x2 - x1) + 3 * t * t * (1 - x2);
+            if (Math.abs(derivative) < 1e-6) {
+                break;
+            }
+            t -= error / derivative;
+            if (t < 0 || t > 1) {
+                break;
+            }
+        }
+        t = x;
+        while (high - low > 1e-7) {
+            if (cubicBezier(t, x1, x2) < x) {
+                low = t;
+            } else {
+                high = t;
+            }
+            t = (low + high) / 2;
+        }
+        return t;
+    }
+}
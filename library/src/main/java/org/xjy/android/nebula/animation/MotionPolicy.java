@@ -0,0 +1,178 @@
+package org.xjy.android.nebula.animation;
+
+import android.animation.ValueAnimator;
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * Decides how much decorative animation the library runs. With animators disabled (animator duration scale 0) it asks
+ * for static rendering, in power save mode for a capped frame rate. Both are observed, and listeners are told when the
+ * motion level changes. Main thread only.
+ */
+@MainThread
+public final class MotionPolicy {
+    public static final int MOTION_FULL = 0;
+    public static final int MOTION_REDUCED = 1;
+    public static final int MOTION_NONE = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({MOTION_FULL, MOTION_REDUCED, MOTION_NONE})
+    public @interface Motion {}
+
+    public static final int DEFAULT_REDUCED_FPS = 20;
+
+    private static MotionPolicy sInstance;
+
+    private final Context mContext;
+    private final ArrayList<OnMotionChangedListener> mListeners = new ArrayList<>();
+    private int mMotion;
+    private int mForcedMotion = -1;
+    private int mReducedFps = DEFAULT_REDUCED_FPS;
+
+    private MotionPolicy(Context context) {
+        mContext = context;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            context.registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    update();
+                }
+            }, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            Uri uri = Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE);
+            context.getContentResolver().registerContentObserver(uri, false, new ContentObserver(new Handler(Looper.getMainLooper())) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    update();
+                }
+            });
+        }
+        mMotion = computeMotion();
+    }
+
+    public static MotionPolicy getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new MotionPolicy(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @Motion
+    public int getMotion() {
+        return mMotion;
+    }
+
+    /**
+     * Overrides the observed motion level, e.g. for an in-app reduced motion setting; pass -1 to follow the system
+     * again.
+     */
+    public void setForcedMotion(int forcedMotion) {
+        if (forcedMotion < -1 || forcedMotion > MOTION_NONE) {
+            throw new IllegalArgumentException("Invalid forced motion " + forcedMotion + ". Must be -1 or a motion level");
+        }
+        if (mForcedMotion != forcedMotion) {
+            mForcedMotion = forcedMotion;
+            update();
+        }
+    }
+
+    public void setReducedFps(int reducedFps) {
+        if (reducedFps < 1) {
+            throw new IllegalArgumentException("Invalid reduced fps " + reducedFps + ". Must be >= 1");
+        }
+        mReducedFps = reducedFps;
+    }
+
+    /**
+     * Returns the frame rate an animation asking for at most {@code maxFps} frames per second, 0 for the display rate,
+     * should run at under this policy.
+     */
+    public int getMaxFps(int maxFps) {
+        if (mMotion == MOTION_REDUCED) {
+            return maxFps > 0 ? Math.min(maxFps, mReducedFps) : mReducedFps;
+        }
+        return maxFps;
+    }
+
+    /**
+     * Scales {@code duration} by the animator duration scale, as {@link ValueAnimator} does; 0 when motion is off.
+     */
+    public long scaleDuration(long duration) {
+        if (mMotion == MOTION_NONE) {
+            return 0;
+        }
+        return mForcedMotion >= 0 ? duration : (long) (duration * getDurationScale());
+    }
+
+    public void addOnMotionChangedListener(@NonNull OnMotionChangedListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeOnMotionChangedListener(@NonNull OnMotionChangedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void update() {
+        int motion = computeMotion();
+        if (mMotion != motion) {
+            mMotion = motion;
+            for (int i = mListeners.size() - 1; i >= 0; i--) {
+                mListeners.get(i).onMotionChanged(motion);
+            }
+        }
+    }
+
+    private int computeMotion() {
+        if (mForcedMotion >= 0) {
+            return mForcedMotion;
+        }
+        if (!areAnimatorsEnabled()) {
+            return MOTION_NONE;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+            if (powerManager != null && powerManager.isPowerSaveMode()) {
+                return MOTION_REDUCED;
+            }
+        }
+        return MOTION_FULL;
+    }
+
+    private boolean areAnimatorsEnabled() {
+        // The setting is read as well on O+, as the framework may not have applied it yet when the observer fires.
+        return getDurationScale() != 0f && (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || ValueAnimator.areAnimatorsEnabled());
+    }
+
+    private float getDurationScale() {
+        ContentResolver resolver = mContext.getContentResolver();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+        }
+        return Settings.System.getFloat(resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+    }
+
+    public interface OnMotionChangedListener {
+        void onMotionChanged(@Motion int motion);
+    }
+}
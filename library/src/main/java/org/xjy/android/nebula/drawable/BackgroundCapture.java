@@ -0,0 +1,24 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Rasterizes only a region of a background drawable into a downsampled capture bitmap, so the cost scales with the
+ * region and not with the background: the capture canvas is a software one, which only rasterizes the clipped part.
+ */
+class BackgroundCapture {
+    /**
+     * Draws the part of {@code background} inside {@code region}, given in the background's own coordinates, into
+     * {@code canvas} scaled down by {@code sampleSize}, with the region's top left corner at the canvas origin.
+     */
+    void capture(Drawable background, RectF region, int sampleSize, Canvas canvas) {
+        int save = canvas.save();
+        canvas.scale(1f / sampleSize, 1f / sampleSize);
+        canvas.translate(-region.left, -region.top);
+        canvas.clipRect(region);
+        background.draw(canvas);
+        canvas.restoreToCount(save);
+    }
+}
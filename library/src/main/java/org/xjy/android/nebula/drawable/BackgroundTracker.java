@@ -0,0 +1,153 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Watches the background drawable of a view and bumps a version whenever its pixels can have changed: the drawable was
+ * replaced or invalidated, or its state, level or bounds changed. It is chained in front of the drawable's previous
+ * callback and forwards everything to it, and invalidates the registered cards so they can re-check. If another callback
+ * is later set on the drawable, the tracker steps aside rather than replacing it and falls back to polling.
+ */
+class BackgroundTracker implements Drawable.Callback {
+    private static final WeakHashMap<View, BackgroundTracker> sTrackers = new WeakHashMap<>();
+
+    private final WeakReference<View> mView;
+    private final ArrayList<WeakReference<Drawable>> mListeners = new ArrayList<>();
+    private Drawable mDrawable;
+    private WeakReference<Drawable.Callback> mCallback;
+    private boolean mAttached;
+    private int mStateHash;
+    private int mLevel;
+    private final Rect mBounds = new Rect();
+    private int mVersion;
+
+    private BackgroundTracker(View view) {
+        mView = new WeakReference<>(view);
+    }
+
+    static BackgroundTracker get(View view) {
+        BackgroundTracker tracker = sTrackers.get(view);
+        if (tracker == null) {
+            tracker = new BackgroundTracker(view);
+            sTrackers.put(view, tracker);
+        }
+        return tracker;
+    }
+
+    static void invalidate(View view) {
+        BackgroundTracker tracker = sTrackers.get(view);
+        if (tracker != null) {
+            tracker.onChanged();
+        }
+    }
+
+    void addListener(Drawable listener) {
+        mListeners.add(new WeakReference<>(listener));
+    }
+
+    void removeListener(Drawable listener) {
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            Drawable l = mListeners.get(i).get();
+            if (l == null || l == listener) {
+                mListeners.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the current version of the background content, first checking the drawable for changes that were not
+     * reported through its callback.
+     */
+    int getVersion() {
+        View view = mView.get();
+        Drawable drawable = view == null ? null : view.getBackground();
+        if (drawable != mDrawable) {
+            if (mAttached && mDrawable.getCallback() == this) {
+                mDrawable.setCallback(mCallback.get());
+            }
+            mAttached = false;
+            mDrawable = drawable;
+            if (drawable != null) {
+                attach(drawable);
+                mStateHash = Arrays.hashCode(drawable.getState());
+                mLevel = drawable.getLevel();
+                mBounds.set(drawable.getBounds());
+            }
+            mVersion++;
+        } else if (drawable != null) {
+            if (mAttached && drawable.getCallback() != this) {
+                // Someone else took over the callback, possibly chaining to this one, so don't take it back. Calls
+                // that still come through here keep being forwarded.
+                mAttached = false;
+                mVersion++;
+            }
+            int stateHash = Arrays.hashCode(drawable.getState());
+            int level = drawable.getLevel();
+            Rect bounds = drawable.getBounds();
+            if (stateHash != mStateHash || level != mLevel || !bounds.equals(mBounds)) {
+                mStateHash = stateHash;
+                mLevel = level;
+                mBounds.set(bounds);
+                mVersion++;
+            }
+        }
+        return mVersion;
+    }
+
+    private void attach(Drawable drawable) {
+        Drawable.Callback callback = drawable.getCallback();
+        if (callback != this) {
+            mCallback = new WeakReference<>(callback);
+            drawable.setCallback(this);
+        }
+        mAttached = true;
+    }
+
+    private void onChanged() {
+        mVersion++;
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            Drawable listener = mListeners.get(i).get();
+            if (listener == null) {
+                mListeners.remove(i);
+            } else {
+                listener.invalidateSelf();
+            }
+        }
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        Drawable.Callback callback = mCallback == null ? null : mCallback.get();
+        if (callback != null) {
+            callback.invalidateDrawable(who);
+        }
+        if (who == mDrawable) {
+            onChanged();
+        }
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        Drawable.Callback callback = mCallback == null ? null : mCallback.get();
+        if (callback != null) {
+            callback.scheduleDrawable(who, what, when);
+        }
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        Drawable.Callback callback = mCallback == null ? null : mCallback.get();
+        if (callback != null) {
+            callback.unscheduleDrawable(who, what);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import org.xjy.android.common.BitmapPool;
+import org.xjy.android.common.BitmapUtils;
+import org.xjy.android.common.BlurDiskCache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Blurs and tints a captured background on the shared worker and hands the result back on the main thread. The
+ * captured bitmap is returned to the {@link BitmapPool}; the result is owned by {@link #onCompleted(Bitmap)}. In place
+ * tasks skip the tint compose, which is then left to the caller, and blur the capture itself. With a disk cache set the
+ * result is read from it on the worker when present, and otherwise written there before it is handed back.
+ */
+abstract class BlurTask implements Runnable {
+    static final int TINTED_BLUR_ALPHA = 35;
+    static final int BLUR_HIGHLIGHT_COLOR = 0x1affffff;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService sExecutor;
+
+    private final Bitmap mBitmap;
+    private final int mBackgroundColor;
+    private final int mSampleSize;
+    private final boolean mInPlace;
+    private BlurDiskCache mDiskCache;
+    private String mDiskKey;
+    private final AtomicBoolean mClaimed = new AtomicBoolean();
+
+    BlurTask(Bitmap bitmap, int backgroundColor, int sampleSize) {
+        this(bitmap, backgroundColor, sampleSize, false);
+    }
+
+    BlurTask(Bitmap bitmap, int backgroundColor, int sampleSize, boolean inPlace) {
+        mBitmap = bitmap;
+        mBackgroundColor = backgroundColor;
+        mSampleSize = sampleSize;
+        mInPlace = inPlace;
+    }
+
+    BlurTask setDiskCache(BlurDiskCache diskCache, String diskKey) {
+        mDiskCache = diskCache;
+        mDiskKey = diskKey;
+        return this;
+    }
+
+    /**
+     * Queues this task. Cancelling the returned future before the task runs returns the capture to the pool.
+     */
+    Future<?> submit() {
+        FutureTask<Void> future = new FutureTask<Void>(this, null) {
+            @Override
+            protected void done() {
+                if (isCancelled() && mClaimed.compareAndSet(false, true)) {
+                    BitmapPool.getDefault().put(mBitmap);
+                }
+            }
+        };
+        getExecutor().execute(future);
+        return future;
+    }
+
+    abstract boolean isStale();
+
+    abstract void onCompleted(Bitmap bitmap);
+
+    @Override
+    public void run() {
+        if (!mClaimed.compareAndSet(false, true)) {
+            return;
+        }
+        if (isStale()) {
+            BitmapPool.getDefault().put(mBitmap);
+            return;
+        }
+        Bitmap result = null;
+        if (mDiskCache != null && mDiskKey != null) {
+            result = mDiskCache.get(mDiskKey, mBitmap.getWidth(), mBitmap.getHeight());
+        }
+        if (result == null) {
+            if (mInPlace) {
+                BitmapUtils.blur(mBitmap, getBlurRadius(mBackgroundColor, mSampleSize));
+                result = mBitmap;
+            } else {
+                result = blurAndCompose(mBitmap, mBackgroundColor, mSampleSize);
+            }
+            if (mDiskCache != null && mDiskKey != null) {
+                mDiskCache.put(mDiskKey, result);
+            }
+        }
+        final Bitmap bitmap = mInPlace ? toHardwareBitmap(result) : result;
+        if (bitmap != mBitmap) {
+            BitmapPool.getDefault().put(mBitmap);
+        }
+        if (result != mBitmap && result != bitmap) {
+            BitmapPool.getDefault().put(result);
+        }
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (isStale()) {
+                    BitmapPool.getDefault().put(bitmap);
+                } else {
+                    onCompleted(bitmap);
+                }
+            }
+        });
+    }
+
+    static int getBlurRadius(int backgroundColor, int sampleSize) {
+        return BitmapUtils.getBlurSampledRadius(backgroundColor != 0 ? 100 : 50, sampleSize);
+    }
+
+    /**
+     * On API 26+ moves {@code bitmap} into an immutable HARDWARE bitmap so its pixels leave the Java heap. Returns the
+     * bitmap holding the pixels; {@code bitmap} itself is left to the caller. Software canvases can't draw the result,
+     * so the card draws a temporary software copy there.
+     */
+    static Bitmap toHardwareBitmap(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            Bitmap hardwareBitmap = bitmap.copy(Bitmap.Config.HARDWARE, false);
+            if (hardwareBitmap != null) {
+                return hardwareBitmap;
+            }
+        }
+        return bitmap;
+    }
+
+    static Bitmap blurAndCompose(Bitmap bitmap, int backgroundColor, int sampleSize) {
+        Bitmap finalBitmap = BitmapPool.getDefault().get(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(finalBitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        BitmapUtils.blur(bitmap, getBlurRadius(backgroundColor, sampleSize));
+        if (backgroundColor != 0) {
+            canvas.drawColor(backgroundColor);
+            paint.setAlpha(TINTED_BLUR_ALPHA);
+            canvas.drawBitmap(bitmap, 0, 0, paint);
+        } else {
+            canvas.drawBitmap(bitmap, 0, 0, paint);
+            canvas.drawColor(BLUR_HIGHLIGHT_COLOR);
+        }
+        return finalBitmap;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "nebula-blur");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+}
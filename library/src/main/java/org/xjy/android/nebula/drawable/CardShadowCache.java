@@ -0,0 +1,160 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RadialGradient;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.util.LruCache;
+
+import org.xjy.android.common.BitmapUtils;
+
+/**
+ * Rasterizes the round rect shadow once per (corner radius, shadow size, colors) into a nine-patch style bitmap: four
+ * corners around a one pixel wide stretchable cross. Drawables of any size with the same shadow share that bitmap.
+ */
+class CardShadowCache {
+    private static final int MAX_SIZE = 1024 * 1024;
+
+    private static final LruCache<Key, Bitmap> sCache = new LruCache<Key, Bitmap>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(Key key, Bitmap value) {
+            return BitmapUtils.getByteCount(value);
+        }
+    };
+
+    static Bitmap get(float cornerRadius, float shadowSize, int startColor, int endColor) {
+        if (cornerRadius + shadowSize <= 0) {
+            return null;
+        }
+        Key key = new Key(cornerRadius, shadowSize, startColor, endColor);
+        Bitmap bitmap = sCache.get(key);
+        if (bitmap == null) {
+            bitmap = createShadowBitmap(cornerRadius, shadowSize, startColor, endColor);
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Draws {@code shadow} around {@code rect}, the rectangle through the centers of the four corner arcs.
+     */
+    static void draw(Canvas canvas, Bitmap shadow, RectF rect, Paint paint, Rect src, RectF dst) {
+        int r = (shadow.getWidth() - 1) / 2;
+        boolean hasHEdge = rect.right > rect.left;
+        boolean hasVEdge = rect.bottom > rect.top;
+        //LT
+        src.set(0, 0, r, r);
+        dst.set(rect.left - r, rect.top - r, rect.left, rect.top);
+        canvas.drawBitmap(shadow, src, dst, paint);
+        //T
+        if (hasHEdge) {
+            src.set(r, 0, r + 1, r);
+            dst.set(rect.left, rect.top - r, rect.right, rect.top);
+            canvas.drawBitmap(shadow, src, dst, paint);
+        }
+        //RT
+        src.set(r + 1, 0, r * 2 + 1, r);
+        dst.set(rect.right, rect.top - r, rect.right + r, rect.top);
+        canvas.drawBitmap(shadow, src, dst, paint);
+        //R
+        if (hasVEdge) {
+            src.set(r + 1, r, r * 2 + 1, r + 1);
+            dst.set(rect.right, rect.top, rect.right + r, rect.bottom);
+            canvas.drawBitmap(shadow, src, dst, paint);
+        }
+        //RB
+        src.set(r + 1, r + 1, r * 2 + 1, r * 2 + 1);
+        dst.set(rect.right, rect.bottom, rect.right + r, rect.bottom + r);
+        canvas.drawBitmap(shadow, src, dst, paint);
+        //B
+        if (hasHEdge) {
+            src.set(r, r + 1, r + 1, r * 2 + 1);
+            dst.set(rect.left, rect.bottom, rect.right, rect.bottom + r);
+            canvas.drawBitmap(shadow, src, dst, paint);
+        }
+        //LB
+        src.set(0, r + 1, r, r * 2 + 1);
+        dst.set(rect.left - r, rect.bottom, rect.left, rect.bottom + r);
+        canvas.drawBitmap(shadow, src, dst, paint);
+        //L
+        if (hasVEdge) {
+            src.set(0, r, r, r + 1);
+            dst.set(rect.left - r, rect.top, rect.left, rect.bottom);
+            canvas.drawBitmap(shadow, src, dst, paint);
+        }
+    }
+
+    private static Bitmap createShadowBitmap(float cornerRadius, float shadowSize, int startColor, int endColor) {
+        float outerRadius = cornerRadius + shadowSize;
+        int r = (int) Math.ceil(outerRadius);
+        Bitmap bitmap = Bitmap.createBitmap(r * 2 + 1, r * 2 + 1, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        Path cornerShadowPath = new Path();
+        cornerShadowPath.setFillType(Path.FillType.EVEN_ODD);
+        RectF innerBounds = new RectF(-cornerRadius, -cornerRadius, cornerRadius, cornerRadius);
+        RectF outerBounds = new RectF(innerBounds);
+        outerBounds.inset(-shadowSize, -shadowSize);
+        cornerShadowPath.moveTo(-cornerRadius, 0);
+        cornerShadowPath.rLineTo(-shadowSize, 0);
+        cornerShadowPath.arcTo(outerBounds, 180, 90, false);
+        cornerShadowPath.arcTo(innerBounds, 270, -90, false);
+        cornerShadowPath.close();
+        Paint cornerShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
+        cornerShadowPaint.setShader(new RadialGradient(0, 0, outerRadius, new int[]{startColor, startColor, endColor},
+                new float[]{0, cornerRadius / outerRadius, 1}, Shader.TileMode.CLAMP));
+        Paint edgeShadowPaint = new Paint(Paint.DITHER_FLAG);
+        edgeShadowPaint.setShader(new LinearGradient(0, -cornerRadius, 0, -outerRadius, startColor, endColor, Shader.TileMode.CLAMP));
+
+        for (int i = 0; i < 4; i++) {
+            int save = canvas.save();
+            canvas.translate(i == 1 || i == 2 ? r + 1 : r, i >= 2 ? r + 1 : r);
+            canvas.rotate(90 * i);
+            canvas.drawPath(cornerShadowPath, cornerShadowPaint);
+            canvas.drawRect(0, -outerRadius, 1, -cornerRadius, edgeShadowPaint);
+            canvas.restoreToCount(save);
+        }
+        return bitmap;
+    }
+
+    private static class Key {
+        private final float mCornerRadius;
+        private final float mShadowSize;
+        private final int mStartColor;
+        private final int mEndColor;
+
+        Key(float cornerRadius, float shadowSize, int startColor, int endColor) {
+            mCornerRadius = cornerRadius;
+            mShadowSize = shadowSize;
+            mStartColor = startColor;
+            mEndColor = endColor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mCornerRadius == key.mCornerRadius && mShadowSize == key.mShadowSize
+                    && mStartColor == key.mStartColor && mEndColor == key.mEndColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(mCornerRadius);
+            result = 31 * result + Float.floatToIntBits(mShadowSize);
+            result = 31 * result + mStartColor;
+            result = 31 * result + mEndColor;
+            return result;
+        }
+    }
+}
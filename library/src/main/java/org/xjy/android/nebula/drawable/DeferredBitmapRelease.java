@@ -0,0 +1,37 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Bitmap;
+import android.view.Choreographer;
+
+import org.xjy.android.common.BitmapPool;
+
+/**
+ * Returns a bitmap that has been drawn, e.g. through a card's shader, to the {@link BitmapPool} two frames later. By
+ * then the views have recorded display lists without it and the render thread is done with the frame that still drew
+ * it, so reusing it can't overwrite what is on screen. Main thread only.
+ */
+class DeferredBitmapRelease implements Choreographer.FrameCallback {
+    private static final int FRAME_DELAY = 2;
+
+    private final Bitmap mBitmap;
+    private int mFrames;
+
+    private DeferredBitmapRelease(Bitmap bitmap) {
+        mBitmap = bitmap;
+    }
+
+    static void release(Bitmap bitmap) {
+        if (bitmap != null) {
+            Choreographer.getInstance().postFrameCallback(new DeferredBitmapRelease(bitmap));
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (++mFrames < FRAME_DELAY) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            BitmapPool.getDefault().put(mBitmap);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.xjy.android.nebula.drawable;
+
+import android.os.Build;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+class DrawableUtils {
+    /**
+     * Scales {@code paintAlpha} by a drawable alpha, as {@link android.graphics.drawable.ShapeDrawable} does.
+     */
+    static int modulateAlpha(int paintAlpha, int alpha) {
+        return paintAlpha * (alpha + (alpha >>> 7)) >>> 8;
+    }
+
+    /**
+     * Makes {@code view} query its background's outline again, on API 21+.
+     */
+    static void invalidateOutline(@Nullable View view) {
+        if (view != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            view.invalidateOutline();
+        }
+    }
+}
@@ -10,6 +10,8 @@ import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.drawable.Drawable;
 
+import org.xjy.android.common.ShaderCache;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -25,6 +27,12 @@ public class GradientMaskDrawable extends Drawable {
     private Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private LinearGradient mTopShader;
     private LinearGradient mBottomShader;
+    private final RenderNodeCache mRenderNodeCache = new RenderNodeCache(new RenderNodeCache.Renderer() {
+        @Override
+        public void render(Canvas canvas) {
+            drawContent(canvas);
+        }
+    });
 
     public GradientMaskDrawable(float topMaskHeight, float bottomMaskHeight, float radius, int colorFrom, int colorTo) {
         this(topMaskHeight, bottomMaskHeight, radius, colorFrom, colorTo, colorFrom, colorTo);
@@ -40,13 +48,20 @@ public class GradientMaskDrawable extends Drawable {
         mBottomColorTo = bottomColorTo;
     }
 
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mTopShader = mTopMaskHeight > 0 ? ShaderCache.getLinearGradient(bounds.left, bounds.top, bounds.left, bounds.top + mTopMaskHeight, mTopColorFrom, mTopColorTo, Shader.TileMode.CLAMP) : null;
+        mBottomShader = mBottomMaskHeight > 0 ? ShaderCache.getLinearGradient(bounds.left, bounds.bottom - mBottomMaskHeight, bounds.left, bounds.bottom, mBottomColorTo, mBottomColorFrom, Shader.TileMode.CLAMP) : null;
+    }
+
     @Override
     public void draw(@NonNull Canvas canvas) {
+        mRenderNodeCache.draw(canvas, getBounds());
+    }
+
+    private void drawContent(Canvas canvas) {
         Rect bounds = getBounds();
-        if (mTopMaskHeight > 0) {
-            if (mTopShader == null) {
-                mTopShader = new LinearGradient(bounds.left, bounds.top, bounds.left, bounds.top + mTopMaskHeight, mTopColorFrom, mTopColorTo, Shader.TileMode.CLAMP);
-            }
+        if (mTopShader != null) {
             mPaint.setShader(mTopShader);
             mRect.set(bounds.left, bounds.top, bounds.right, bounds.top + mTopMaskHeight);
             if (mRadius > 0) {
@@ -55,10 +70,7 @@ public class GradientMaskDrawable extends Drawable {
                 canvas.drawRect(mRect, mPaint);
             }
         }
-        if (mBottomMaskHeight > 0) {
-            if (mBottomShader == null) {
-                mBottomShader = new LinearGradient(bounds.left, bounds.bottom - mBottomMaskHeight, bounds.left, bounds.bottom, mBottomColorTo, mBottomColorFrom, Shader.TileMode.CLAMP);
-            }
+        if (mBottomShader != null) {
             mPaint.setShader(mBottomShader);
             mRect.set(bounds.left, bounds.bottom - mBottomMaskHeight, bounds.right, bounds.bottom);
             if (mRadius > 0) {
@@ -70,13 +82,31 @@ public class GradientMaskDrawable extends Drawable {
     }
 
     @Override
-    public void setAlpha(int alpha) {}
+    public void setAlpha(int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            mRenderNodeCache.invalidate();
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
 
     @Override
-    public void setColorFilter(@Nullable ColorFilter colorFilter) {}
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        mRenderNodeCache.invalidate();
+        invalidateSelf();
+    }
 
     @Override
     public int getOpacity() {
-        return PixelFormat.UNKNOWN;
+        if (mPaint.getAlpha() == 0 || (mTopMaskHeight <= 0 && mBottomMaskHeight <= 0)) {
+            return PixelFormat.TRANSPARENT;
+        }
+        return PixelFormat.TRANSLUCENT;
     }
 }
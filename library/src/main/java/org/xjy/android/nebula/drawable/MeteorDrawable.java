@@ -1,8 +1,5 @@
 package org.xjy.android.nebula.drawable;
 
-import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ValueAnimator;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
@@ -11,190 +8,454 @@ import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
-import android.os.Handler;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.View;
 
-import java.util.ArrayList;
+import org.xjy.android.nebula.animation.FrameClock;
+import org.xjy.android.nebula.animation.LutInterpolator;
+import org.xjy.android.nebula.animation.MotionPolicy;
+
+import java.util.Random;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.view.animation.PathInterpolatorCompat;
+import androidx.annotation.RequiresApi;
+import androidx.core.view.ViewCompat;
 
+/**
+ * Meteors running along the four edges: down the left edge, up the right edge, and along the top and bottom edges and
+ * back. Every frame is computed from the time elapsed since the cycle started, so nothing but the drawing itself runs
+ * per frame. Frames come from the shared {@link FrameClock}, which is left during the pause between cycles. The clock
+ * is paused while the drawable is invisible, e.g. when its host view is detached, or has no callback, and resumes where
+ * it left off. The {@link MotionPolicy} of the host's app caps the frame rate in power save mode and switches to a
+ * static border when animators are disabled.
+ * <p>
+ * As a view background every frame re-records the whole view; {@link #attachToOverlay(View)} draws the border from the
+ * view's overlay instead, so only the border is redrawn.
+ * <p>
+ * In particle mode ({@link #setMeteorsPerEdge(int)}) many meteors run along each edge at random times instead. Their
+ * state lives in parallel primitive arrays and they are drawn with one {@code drawLines} call per alpha level.
+ */
 public class MeteorDrawable extends Drawable implements Animatable {
+    private static final long METEOR_DURATION = 570;
+    private static final long RETURN_METEOR_DURATION = 830;
+    private static final long TAIL_DELAY = 230;
+    private static final long RETURN_START = METEOR_DURATION + TAIL_DELAY;
+    private static final long CYCLE_DURATION = RETURN_START + RETURN_METEOR_DURATION + TAIL_DELAY;
+    private static final long RESTART_DELAY = 1500;
+    private static final int MAX_ALPHA = 128;
+    private static final long PARTICLE_DURATION = METEOR_DURATION + TAIL_DELAY;
+    private static final int ALPHA_LEVELS = 8;
+    private static final long FRAME_TIME_TOLERANCE = 4;
+
+    private static final LutInterpolator sMoveInterpolator = LutInterpolator.ofCubicBezier(0.6f, 0, 0.4f, 1);
+    private static final LutInterpolator sFadeInterpolator = LutInterpolator.ACCELERATE_DECELERATE;
+
     private Paint mPaint;
-    private AnimatorSet mLeftAnimator;
-    private AnimatorSet mTopAnimator;
-    private AnimatorSet mRightAnimator;
-    private AnimatorSet mBottomAnimator;
-    private Handler mHandler;
+    private int mAlpha = 255;
+    private float[] mPoints = new float[16];
+    private boolean mStartPending = true;
+    private boolean mStarted;
+    private boolean mRunning;
+    private boolean mPaused;
+    private long mStartTime;
+    private long mPauseTime;
+    private int mMeteorsPerEdge;
+    private long[] mParticleStartTimes;
+    private int[] mParticleEdges;
+    private float[] mParticleHeads;
+    private float[] mParticleTails;
+    private int[] mParticleAlphas;
+    private float[] mParticlePoints;
+    private int[] mAlphaLevelOffsets = new int[ALPHA_LEVELS + 1];
+    private Random mRandom;
+    private int mMaxFps;
+    private long mLastFrameTime;
+    private MotionPolicy mMotionPolicy;
+    private StaticMeteorDrawable mStaticMeteorDrawable;
+    private MeteorOverlay mOverlay;
+    private final MotionPolicy.OnMotionChangedListener mMotionChangedListener = new MotionPolicy.OnMotionChangedListener() {
+        @Override
+        public void onMotionChanged(int motion) {
+            updateFrameCallback();
+            invalidateSelf();
+        }
+    };
+    private final Runnable mRestartRunnable = new Runnable() {
+        @Override
+        public void run() {
+            start();
+        }
+    };
+    private final FrameClock.Callback mFrameCallback = new FrameClock.Callback() {
+        @Override
+        public void onFrame(long frameTime) {
+            int maxFps = mMotionPolicy == null ? mMaxFps : mMotionPolicy.getMaxFps(mMaxFps);
+            if (maxFps > 0 && frameTime - mLastFrameTime < 1000 / maxFps - FRAME_TIME_TOLERANCE) {
+                return;
+            }
+            mLastFrameTime = frameTime;
+            invalidateSelf();
+            pauseIfHidden();
+        }
+    };
 
     public MeteorDrawable(float strokeWidth) {
         mPaint = new Paint();
         mPaint.setAntiAlias(true);
         mPaint.setColor(Color.WHITE);
         mPaint.setStrokeWidth(strokeWidth);
-        mHandler = new Handler();
     }
 
     @Override
     public void draw(@NonNull Canvas canvas) {
+        if (mStartPending) {
+            start();
+        } else if (mPaused && isVisible()) {
+            resume();
+        }
+        if (mMotionPolicy == null && getCallback() instanceof View) {
+            mMotionPolicy = MotionPolicy.getInstance(((View) getCallback()).getContext());
+            updateFrameCallback();
+        }
+        if (mStarted && mMotionPolicy != null && mMotionPolicy.getMotion() == MotionPolicy.MOTION_NONE) {
+            if (mStaticMeteorDrawable == null) {
+                mStaticMeteorDrawable = new StaticMeteorDrawable(mPaint.getStrokeWidth());
+                mStaticMeteorDrawable.setAlpha(mAlpha);
+                mStaticMeteorDrawable.setColorFilter(mPaint.getColorFilter());
+            }
+            mStaticMeteorDrawable.setBounds(getBounds());
+            mStaticMeteorDrawable.draw(canvas);
+            return;
+        }
+        if (!mRunning) {
+            return;
+        }
+        long time = (mPaused ? mPauseTime : SystemClock.uptimeMillis()) - mStartTime;
+        if (mMeteorsPerEdge > 0) {
+            drawParticles(canvas, time);
+            return;
+        }
+        if (time >= CYCLE_DURATION) {
+            if (!mPaused) {
+                mRunning = false;
+                updateFrameCallback();
+                scheduleSelf(mRestartRunnable, mStartTime + CYCLE_DURATION + RESTART_DELAY);
+                pauseIfHidden();
+            }
+            return;
+        }
+
         Rect bounds = getBounds();
-        if (mLeftAnimator == null) {
-            mLeftAnimator = createAnimator(bounds.top, bounds.bottom, 570, 230);
-            mTopAnimator = createRoundAnimator(bounds.left, bounds.right, 570, 830, 230);
-            mRightAnimator = createAnimator(bounds.bottom, bounds.top, 570, 230);
-            mBottomAnimator = createRoundAnimator(bounds.right, bounds.left, 570, 830, 230);
-            mBottomAnimator.addListener(new Animator.AnimatorListener() {
-                @Override
-                public void onAnimationStart(Animator animation) {}
-
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    mHandler.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            start();
-                        }
-                    }, 1500);
+        float[] points = mPoints;
+        int count;
+        long duration;
+        if (time < RETURN_START) {
+            duration = RETURN_START;
+            float head = getValue(sMoveInterpolator, time, METEOR_DURATION);
+            float tail = getValue(sMoveInterpolator, time - TAIL_DELAY, METEOR_DURATION);
+            count = putLine(points, 0, bounds.left, bounds.top, bounds.left, bounds.bottom, head, tail);
+            count = putLine(points, count, bounds.left, bounds.top, bounds.right, bounds.top, head, tail);
+            count = putLine(points, count, bounds.right, bounds.bottom, bounds.right, bounds.top, head, tail);
+            count = putLine(points, count, bounds.right, bounds.bottom, bounds.left, bounds.bottom, head, tail);
+        } else {
+            time -= RETURN_START;
+            duration = RETURN_METEOR_DURATION + TAIL_DELAY;
+            float head = getValue(sMoveInterpolator, time, RETURN_METEOR_DURATION);
+            float tail = getValue(sMoveInterpolator, time - TAIL_DELAY, RETURN_METEOR_DURATION);
+            count = putLine(points, 0, bounds.right, bounds.top, bounds.left, bounds.top, head, tail);
+            count = putLine(points, count, bounds.left, bounds.bottom, bounds.right, bounds.bottom, head, tail);
+        }
+        float fade = getValue(sFadeInterpolator, time, duration);
+        mPaint.setAlpha(DrawableUtils.modulateAlpha((int) (MAX_ALPHA * 2 * (fade < 0.5f ? fade : 1 - fade)), mAlpha));
+        canvas.drawLines(points, 0, count, mPaint);
+    }
+
+    /**
+     * Switches to particle mode with {@code meteorsPerEdge} meteors per edge, each restarting after a random pause, or
+     * back to the single meteor cycle with 0.
+     */
+    public void setMeteorsPerEdge(int meteorsPerEdge) {
+        if (meteorsPerEdge < 0) {
+            throw new IllegalArgumentException("Invalid meteors per edge " + meteorsPerEdge + ". Must be >= 0");
+        }
+        if (mMeteorsPerEdge != meteorsPerEdge) {
+            mMeteorsPerEdge = meteorsPerEdge;
+            int count = meteorsPerEdge * 4;
+            if (count > 0) {
+                if (mRandom == null) {
+                    mRandom = new Random();
+                }
+                mParticleStartTimes = new long[count];
+                mParticleEdges = new int[count];
+                mParticleHeads = new float[count];
+                mParticleTails = new float[count];
+                mParticleAlphas = new int[count];
+                mParticlePoints = new float[count * 4];
+                for (int i = 0; i < count; i++) {
+                    mParticleEdges[i] = i % 4;
                 }
+                resetParticles();
+            } else {
+                mParticleStartTimes = null;
+                mParticleEdges = null;
+                mParticleHeads = null;
+                mParticleTails = null;
+                mParticleAlphas = null;
+                mParticlePoints = null;
+            }
+            if (mStarted) {
+                mRunning = false;
+                start();
+            }
+        }
+    }
+
+    private void resetParticles() {
+        for (int i = 0, count = mMeteorsPerEdge * 4; i < count; i++) {
+            mParticleStartTimes[i] = (long) (mRandom.nextFloat() * RESTART_DELAY);
+        }
+    }
+
+    private void drawParticles(Canvas canvas, long time) {
+        int count = mMeteorsPerEdge * 4;
+        long[] startTimes = mParticleStartTimes;
+        float[] heads = mParticleHeads;
+        float[] tails = mParticleTails;
+        int[] alphas = mParticleAlphas;
+        int[] offsets = mAlphaLevelOffsets;
+        for (int i = 0; i <= ALPHA_LEVELS; i++) {
+            offsets[i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            long particleTime = time - startTimes[i];
+            if (particleTime >= PARTICLE_DURATION) {
+                startTimes[i] = time + (long) (mRandom.nextFloat() * RESTART_DELAY);
+                particleTime = time - startTimes[i];
+            }
+            if (particleTime < 0) {
+                alphas[i] = 0;
+                continue;
+            }
+            heads[i] = getValue(sMoveInterpolator, particleTime, METEOR_DURATION);
+            tails[i] = getValue(sMoveInterpolator, particleTime - TAIL_DELAY, METEOR_DURATION);
+            float fade = getValue(sFadeInterpolator, particleTime, PARTICLE_DURATION);
+            alphas[i] = (int) (MAX_ALPHA * 2 * (fade < 0.5f ? fade : 1 - fade));
+            if (alphas[i] > 0) {
+                offsets[getAlphaLevel(alphas[i]) + 1] += 4;
+            }
+        }
+        for (int i = 1; i <= ALPHA_LEVELS; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+
+        Rect bounds = getBounds();
+        float[] points = mParticlePoints;
+        int[] edges = mParticleEdges;
+        for (int i = 0; i < count; i++) {
+            if (alphas[i] <= 0) {
+                continue;
+            }
+            int level = getAlphaLevel(alphas[i]);
+            switch (edges[i]) {
+                case 0:
+                    offsets[level] = putLine(points, offsets[level], bounds.left, bounds.top, bounds.left, bounds.bottom, heads[i], tails[i]);
+                    break;
+                case 1:
+                    offsets[level] = putLine(points, offsets[level], bounds.left, bounds.top, bounds.right, bounds.top, heads[i], tails[i]);
+                    break;
+                case 2:
+                    offsets[level] = putLine(points, offsets[level], bounds.right, bounds.bottom, bounds.right, bounds.top, heads[i], tails[i]);
+                    break;
+                default:
+                    offsets[level] = putLine(points, offsets[level], bounds.right, bounds.bottom, bounds.left, bounds.bottom, heads[i], tails[i]);
+                    break;
+            }
+        }
 
-                @Override
-                public void onAnimationCancel(Animator animation) {}
+        int start = 0;
+        for (int level = 0; level < ALPHA_LEVELS; level++) {
+            int end = offsets[level];
+            if (end > start) {
+                mPaint.setAlpha(DrawableUtils.modulateAlpha((level * 2 + 1) * (MAX_ALPHA + 1) / (ALPHA_LEVELS * 2), mAlpha));
+                canvas.drawLines(points, start, end - start, mPaint);
+            }
+            start = end;
+        }
+    }
+
+    private static int getAlphaLevel(int alpha) {
+        return Math.min(alpha * ALPHA_LEVELS / (MAX_ALPHA + 1), ALPHA_LEVELS - 1);
+    }
 
-                @Override
-                public void onAnimationRepeat(Animator animation) {}
-            });
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            pause();
+        } else if (restart && mStarted) {
+            mRunning = false;
             start();
+        } else {
+            resume();
         }
+        return changed;
+    }
 
-        drawLine(mLeftAnimator, bounds.left, false, canvas);
-        drawHorizontalLine(mTopAnimator, bounds.top, canvas);
-        drawHorizontalLine(mBottomAnimator, bounds.bottom, canvas);
-        drawLine(mRightAnimator, bounds.right, false, canvas);
+    /**
+     * Pauses while hidden or detached. Views only call {@link #setVisible(boolean, boolean)} on detach from API 24, so
+     * the host's attach state is checked here as well; the next draw resumes.
+     */
+    private void pauseIfHidden() {
+        Callback callback = getCallback();
+        if (!isVisible() || callback == null || callback instanceof View && !ViewCompat.isAttachedToWindow((View) callback)) {
+            pause();
+        }
+    }
 
-        if (isRunning()) {
-            invalidateSelf();
+    private void pause() {
+        if (mStarted && !mPaused) {
+            mPaused = true;
+            mPauseTime = SystemClock.uptimeMillis();
+            unscheduleSelf(mRestartRunnable);
+            updateFrameCallback();
         }
     }
 
-    private AnimatorSet createAnimator(int start, int end, long duration, long interval) {
-        AnimatorSet set = new AnimatorSet();
-        HoldIntValueAnimator first = createTranslateAnimator(start, end, duration);
-        HoldIntValueAnimator second = createTranslateAnimator(start, end, duration);
-        second.setStartDelay(interval);
-        AnimatorSet translateAnimator = new AnimatorSet();
-        translateAnimator.play(first).with(second);
-        set.play(translateAnimator).with(createAlphaAnimator(duration + interval));
-        return set;
+    private void resume() {
+        if (mPaused) {
+            mPaused = false;
+            mStartTime += SystemClock.uptimeMillis() - mPauseTime;
+            updateFrameCallback();
+            if (mRunning) {
+                invalidateSelf();
+            } else {
+                scheduleSelf(mRestartRunnable, mStartTime + CYCLE_DURATION + RESTART_DELAY);
+            }
+        }
     }
 
-    private AnimatorSet createRoundAnimator(int start, int end, long duration, long backDuration, long interval) {
-        AnimatorSet set = new AnimatorSet();
-        set.play(createAnimator(end, start, backDuration, interval)).after(createAnimator(start, end, duration, interval));
-        return set;
+    /**
+     * Draws this drawable over the frame of {@code host} from an overlay view with its own display list, so its frames
+     * don't re-record the host's content. The overlay belongs to {@code host} if it is a ViewGroup, otherwise to its
+     * parent, and is drawn above the host's content. Don't also set this drawable as a background.
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public void attachToOverlay(@NonNull View host) {
+        detachFromOverlay();
+        mOverlay = new MeteorOverlay(host, this);
     }
 
-    private HoldIntValueAnimator createTranslateAnimator(int start, int end, long duration) {
-        HoldIntValueAnimator animator = HoldIntValueAnimator.ofInt(start, end);
-        animator.setDuration(duration);
-        animator.setInterpolator(PathInterpolatorCompat.create(0.6f, 0, 0.4f, 1));
-        return animator;
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public void detachFromOverlay() {
+        if (mOverlay != null) {
+            mOverlay.remove();
+            mOverlay = null;
+        }
     }
 
-    private ValueAnimator createAlphaAnimator(long duration) {
-        ValueAnimator animator = ValueAnimator.ofInt(0, 128, 0);
-        animator.setDuration(duration);
-        return animator;
+    /**
+     * Caps the frame rate of this drawable at {@code maxFps}, or 0 for the display rate. The motion policy may lower it
+     * further.
+     */
+    public void setMaxFps(int maxFps) {
+        if (maxFps < 0) {
+            throw new IllegalArgumentException("Invalid max fps " + maxFps + ". Must be >= 0");
+        }
+        mMaxFps = maxFps;
     }
 
-    private void drawHorizontalLine(AnimatorSet animatorSet, int y, Canvas canvas) {
-        if (animatorSet.isStarted()) {
-            ArrayList<Animator> animators = animatorSet.getChildAnimations();
-            for (int i = 0, size = animators.size(); i < size; i++) {
-                drawLine((AnimatorSet) animators.get(i), y, true, canvas);
+    private void updateFrameCallback() {
+        boolean motionDisabled = mMotionPolicy != null && mMotionPolicy.getMotion() == MotionPolicy.MOTION_NONE;
+        if (mRunning && !mPaused && !motionDisabled) {
+            FrameClock.getInstance().subscribe(mFrameCallback);
+        } else {
+            FrameClock.getInstance().unsubscribe(mFrameCallback);
+        }
+        if (mMotionPolicy != null) {
+            if (mStarted && !mPaused) {
+                mMotionPolicy.addOnMotionChangedListener(mMotionChangedListener);
+            } else {
+                mMotionPolicy.removeOnMotionChangedListener(mMotionChangedListener);
             }
         }
     }
 
-    private void drawLine(AnimatorSet animatorSet, int coordinate, boolean horizontal, Canvas canvas) {
-        if (animatorSet.isStarted()) {
-            ArrayList<Animator> animators = animatorSet.getChildAnimations();
-            for (int i = 0, size = animators.size(); i < size; i++) {
-                Animator animator = animators.get(i);
-                int start = 0;
-                int end = 0;
-                if (animator instanceof AnimatorSet) {
-                    ArrayList<Animator> animations = ((AnimatorSet) animator).getChildAnimations();
-                    start = (int) ((ValueAnimator) animations.get(0)).getAnimatedValue();
-                    HoldIntValueAnimator holdIntValueAnimator = (HoldIntValueAnimator) animations.get(1);
-                    if (holdIntValueAnimator.isStarted() && !holdIntValueAnimator.isRunning()) {
-                        end = holdIntValueAnimator.mValues[0];
-                    } else {
-                        end = (int) holdIntValueAnimator.getAnimatedValue();
-                    }
-                } else {
-                    mPaint.setAlpha((Integer) ((ValueAnimator) animator).getAnimatedValue());
-                }
-                if (horizontal) {
-                    canvas.drawLine(start, coordinate, end, coordinate, mPaint);
-                } else {
-                    canvas.drawLine(coordinate, start, coordinate, end, mPaint);
-                }
+    private static int putLine(float[] points, int offset, float startX, float startY, float endX, float endY, float head, float tail) {
+        points[offset] = startX + (endX - startX) * head;
+        points[offset + 1] = startY + (endY - startY) * head;
+        points[offset + 2] = startX + (endX - startX) * tail;
+        points[offset + 3] = startY + (endY - startY) * tail;
+        return offset + 4;
+    }
+
+    private static float getValue(LutInterpolator interpolator, long time, long duration) {
+        return interpolator.getInterpolation((float) time / duration);
+    }
+
+    @Override
+    public void setAlpha(@IntRange(from = 0, to = 255) int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            if (mStaticMeteorDrawable != null) {
+                mStaticMeteorDrawable.setAlpha(alpha);
             }
+            invalidateSelf();
         }
     }
 
     @Override
-    public void setAlpha(@IntRange(from = 0, to = 255) int alpha) {}
+    public int getAlpha() {
+        return mAlpha;
+    }
 
     @Override
-    public void setColorFilter(@Nullable ColorFilter colorFilter) {}
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        if (mStaticMeteorDrawable != null) {
+            mStaticMeteorDrawable.setColorFilter(colorFilter);
+        }
+        invalidateSelf();
+    }
 
     @Override
     public int getOpacity() {
-        return PixelFormat.UNKNOWN;
+        return mAlpha == 0 ? PixelFormat.TRANSPARENT : PixelFormat.TRANSLUCENT;
     }
 
     @Override
     public void start() {
-        if (mLeftAnimator != null && !isRunning()) {
-            mLeftAnimator.start();
-            mTopAnimator.start();
-            mRightAnimator.start();
-            mBottomAnimator.start();
+        mStartPending = false;
+        mStarted = true;
+        resume();
+        if (!mRunning) {
+            unscheduleSelf(mRestartRunnable);
+            mRunning = true;
+            mStartTime = SystemClock.uptimeMillis();
+            if (mMeteorsPerEdge > 0) {
+                resetParticles();
+            }
+            updateFrameCallback();
             invalidateSelf();
+            pauseIfHidden();
         }
     }
 
     @Override
     public void stop() {
-        if (mLeftAnimator != null) {
-            mLeftAnimator.end();
-            mTopAnimator.end();
-            mRightAnimator.end();
-            mBottomAnimator.end();
-            mHandler.removeCallbacksAndMessages(null);
-        }
+        mStartPending = false;
+        mStarted = false;
+        mPaused = false;
+        unscheduleSelf(mRestartRunnable);
+        mRunning = false;
+        updateFrameCallback();
+        invalidateSelf();
     }
 
     @Override
     public boolean isRunning() {
-        return mLeftAnimator.isRunning() || mTopAnimator.isRunning() || mRightAnimator.isRunning() || mBottomAnimator.isRunning();
-    }
-
-    private static class HoldIntValueAnimator extends ValueAnimator {
-        private int[] mValues;
-
-        @Override
-        public void setIntValues(int... values) {
-            super.setIntValues(values);
-            mValues = values;
-        }
-
-        public static HoldIntValueAnimator ofInt(int... values) {
-            HoldIntValueAnimator anim = new HoldIntValueAnimator();
-            anim.setIntValues(values);
-            return anim;
-        }
+        return mRunning && !mPaused;
     }
 }
@@ -0,0 +1,75 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * A view in a {@link android.view.ViewGroupOverlay} that shows a drawable over the frame of a host view. It has its own
+ * display list, so invalidating the drawable re-records only this view and not the host's content. It follows the host's
+ * layout and, for a host inside the container, its translation, e.g. from item animations or swipes; scale and rotation
+ * are not followed.
+ */
+@RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class MeteorOverlay extends View implements View.OnLayoutChangeListener, ViewTreeObserver.OnPreDrawListener {
+    private final View mHost;
+    private final ViewGroup mContainer;
+
+    MeteorOverlay(View host, Drawable drawable) {
+        super(host.getContext());
+        mHost = host;
+        if (host instanceof ViewGroup) {
+            mContainer = (ViewGroup) host;
+        } else if (host.getParent() instanceof ViewGroup) {
+            mContainer = (ViewGroup) host.getParent();
+        } else {
+            throw new IllegalArgumentException("Host must be a ViewGroup or have a ViewGroup parent");
+        }
+        setBackground(drawable);
+        mContainer.getOverlay().add(this);
+        host.addOnLayoutChangeListener(this);
+        if (host != mContainer) {
+            //translation changes don't lay out, so they are picked up before each draw
+            host.getViewTreeObserver().addOnPreDrawListener(this);
+        }
+        updateFrame();
+    }
+
+    void remove() {
+        mHost.removeOnLayoutChangeListener(this);
+        if (mHost != mContainer) {
+            mHost.getViewTreeObserver().removeOnPreDrawListener(this);
+        }
+        mContainer.getOverlay().remove(this);
+        setBackground(null);
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        updateFrame();
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        updateTranslation();
+        return true;
+    }
+
+    private void updateTranslation() {
+        if (mHost != mContainer) {
+            setTranslationX(mHost.getTranslationX());
+            setTranslationY(mHost.getTranslationY());
+        }
+    }
+
+    private void updateFrame() {
+        int left = mHost == mContainer ? 0 : mHost.getLeft();
+        int top = mHost == mContainer ? 0 : mHost.getTop();
+        layout(left, top, left + mHost.getWidth(), top + mHost.getHeight());
+        updateTranslation();
+    }
+}
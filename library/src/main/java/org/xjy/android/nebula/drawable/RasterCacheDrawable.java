@@ -0,0 +1,215 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import org.xjy.android.common.BitmapPool;
+import org.xjy.android.common.BitmapUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Wraps a drawable whose output depends only on its parameters and size, e.g. {@link StaticMeteorDrawable} or
+ * {@link GradientMaskDrawable}, and draws it once per (key, size) into a bitmap that later draws blit. The key stands
+ * for the wrapped drawable's parameters, which are pixel values, so it covers density too; wrappers with equal keys and
+ * sizes share one bitmap through an LRU cache shared by all instances. Call {@link #setKey(Object)} after changing the
+ * wrapped drawable's parameters.
+ * <p>
+ * Each instance holds on to the bitmap it last drew, so a bitmap too large for the cache, or evicted from it, is not
+ * rasterized again on every draw. A bitmap goes back to the {@link BitmapPool} once it is out of the cache and no
+ * instance draws it anymore. Main thread only.
+ */
+public class RasterCacheDrawable extends Drawable implements Drawable.Callback {
+    private static final int MAX_SIZE = 4 * 1024 * 1024;
+
+    private static final LruCache<Key, Entry> sCache = new LruCache<Key, Entry>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(Key key, Entry value) {
+            return value.mByteCount;
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, Key key, Entry oldValue, Entry newValue) {
+            oldValue.mCached = false;
+            if (oldValue.mRefCount == 0) {
+                DeferredBitmapRelease.release(oldValue.mBitmap);
+            }
+        }
+    };
+    private static final Key sLookupKey = new Key();
+
+    private final Drawable mDrawable;
+    private Object mKey;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private Entry mEntry;
+
+    public RasterCacheDrawable(@NonNull Drawable drawable, @NonNull Object key) {
+        mDrawable = drawable;
+        mKey = key;
+        drawable.setCallback(this);
+    }
+
+    @NonNull
+    public Drawable getDrawable() {
+        return mDrawable;
+    }
+
+    public void setKey(@NonNull Object key) {
+        if (!mKey.equals(key)) {
+            mKey = key;
+            invalidateSelf();
+        }
+    }
+
+    public static void clearCache() {
+        sCache.evictAll();
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mDrawable.setBounds(0, 0, bounds.width(), bounds.height());
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        Rect bounds = getBounds();
+        int width = bounds.width();
+        int height = bounds.height();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        Entry entry = sCache.get(sLookupKey.set(mKey, width, height));
+        if (entry == null && mEntry != null && mEntry.mKey.equals(sLookupKey)) {
+            entry = mEntry;
+        }
+        if (entry == null) {
+            Bitmap bitmap = BitmapPool.getDefault().get(width, height, Bitmap.Config.ARGB_8888);
+            mDrawable.draw(new Canvas(bitmap));
+            entry = new Entry(new Key().set(mKey, width, height), bitmap);
+            if (entry.mByteCount <= MAX_SIZE) {
+                entry.mCached = true;
+                sCache.put(entry.mKey, entry);
+            }
+        }
+        if (entry != mEntry) {
+            entry.mRefCount++;
+            releaseEntry(mEntry);
+            mEntry = entry;
+        }
+        canvas.drawBitmap(entry.mBitmap, bounds.left, bounds.top, mPaint);
+    }
+
+    private static void releaseEntry(Entry entry) {
+        if (entry != null && --entry.mRefCount == 0 && !entry.mCached) {
+            // Deferred, as the display list recorded before this instance switched bitmaps may still draw it.
+            DeferredBitmapRelease.release(entry.mBitmap);
+        }
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mDrawable.getIntrinsicWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mDrawable.getIntrinsicHeight();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        if (mPaint.getAlpha() == 0) {
+            return PixelFormat.TRANSPARENT;
+        }
+        int opacity = mDrawable.getOpacity();
+        return opacity == PixelFormat.OPAQUE && (mPaint.getAlpha() < 255 || mPaint.getColorFilter() != null) ? PixelFormat.TRANSLUCENT : opacity;
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        invalidateSelf();
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
+    }
+
+    private static class Entry {
+        private final Key mKey;
+        private final Bitmap mBitmap;
+        private final int mByteCount;
+        private int mRefCount;
+        private boolean mCached;
+
+        Entry(Key key, Bitmap bitmap) {
+            mKey = key;
+            mBitmap = bitmap;
+            mByteCount = BitmapUtils.getByteCount(bitmap);
+        }
+    }
+
+    private static class Key {
+        private Object mKey;
+        private int mWidth;
+        private int mHeight;
+
+        Key set(Object key, int width, int height) {
+            mKey = key;
+            mWidth = width;
+            mHeight = height;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mWidth == key.mWidth && mHeight == key.mHeight && mKey.equals(key.mKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mKey.hashCode();
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            return result;
+        }
+    }
+}
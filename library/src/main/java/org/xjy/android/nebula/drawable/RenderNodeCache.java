@@ -0,0 +1,70 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.Rect;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Records a drawing into a {@link RenderNode} on API 29+ hardware canvases and replays it until {@link #invalidate()}
+ * is called or the bounds change, so the UI thread doesn't re-issue the path and gradient ops every frame. Elsewhere
+ * it draws directly.
+ */
+class RenderNodeCache {
+    private final Renderer mRenderer;
+    private final Rect mRecordedBounds = new Rect();
+    private Object mRenderNode;
+    private boolean mValid;
+
+    RenderNodeCache(Renderer renderer) {
+        mRenderer = renderer;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    void draw(Canvas canvas, Rect bounds) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            Api29Impl.draw(this, canvas, bounds);
+        } else {
+            mRenderer.render(canvas);
+        }
+    }
+
+    interface Renderer {
+        void render(Canvas canvas);
+    }
+
+    /**
+     * Keeps the API 29 classes out of {@link RenderNodeCache} itself, which older platforms load.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private static class Api29Impl {
+        static void draw(RenderNodeCache cache, Canvas canvas, Rect bounds) {
+            RenderNode renderNode = (RenderNode) cache.mRenderNode;
+            if (renderNode == null) {
+                renderNode = new RenderNode("Nebula");
+                renderNode.setClipToBounds(false);
+                cache.mRenderNode = renderNode;
+                cache.mValid = false;
+            }
+            if (!cache.mValid || !cache.mRecordedBounds.equals(bounds) || !renderNode.hasDisplayList()) {
+                renderNode.setPosition(bounds);
+                RecordingCanvas recordingCanvas = renderNode.beginRecording();
+                try {
+                    recordingCanvas.translate(-bounds.left, -bounds.top);
+                    cache.mRenderer.render(recordingCanvas);
+                } finally {
+                    renderNode.endRecording();
+                }
+                cache.mRecordedBounds.set(bounds);
+                cache.mValid = true;
+            }
+            canvas.drawRenderNode(renderNode);
+        }
+    }
+}
@@ -1,33 +1,103 @@
 package org.xjy.android.nebula.drawable;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.Outline;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
+import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 public class RoundBulgeDrawable extends Drawable {
     private Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private int mColor;
+    private int mAlpha = 255;
     private float mCornerRadius;
     private float mBulgeRadius;
 
     private RectF mCornerRect = new RectF();
     private RectF mBulgeRect = new RectF();
+    private Path mOutlinePath = new Path();
+    private boolean mHasOutlinePath;
+    private final RenderNodeCache mRenderNodeCache = new RenderNodeCache(new RenderNodeCache.Renderer() {
+        @Override
+        public void render(Canvas canvas) {
+            drawContent(canvas);
+        }
+    });
 
     private RoundBulgeDrawable(int color, float cornerRadius, float bulgeRadius) {
+        mColor = color;
         mPaint.setColor(color);
         mCornerRadius = cornerRadius;
         mBulgeRadius = bulgeRadius;
         mPaint.setStyle(Paint.Style.FILL);
     }
 
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        updateOutlinePath(bounds);
+    }
+
+    /**
+     * Builds the convex hull of the card and the bulge: the bulge's top arc, the outer tangents from it to the top
+     * corner arcs, and the rest of the round rect. Left empty when the bulge is not narrower than the card.
+     */
+    private void updateOutlinePath(Rect bounds) {
+        mOutlinePath.reset();
+        mHasOutlinePath = false;
+        float top = bounds.top + mBulgeRadius;
+        float cornerRadius = Math.min(mCornerRadius, Math.min(bounds.width(), bounds.bottom - top) / 2f);
+        float centerX = bounds.centerX();
+        float dx = bounds.left + cornerRadius - centerX;
+        double distance = Math.hypot(dx, cornerRadius);
+        if (mBulgeRadius <= 0 || cornerRadius < 0 || distance <= Math.abs(mBulgeRadius - cornerRadius)) {
+            return;
+        }
+        float leftAngle = (float) Math.toDegrees(Math.atan2(cornerRadius, dx) + Math.acos((mBulgeRadius - cornerRadius) / distance));
+        if (leftAngle <= 180 || leftAngle >= 270) {
+            return;
+        }
+        float rightAngle = 540 - leftAngle;
+        float cornerSize = cornerRadius * 2;
+        mBulgeRect.set(centerX - mBulgeRadius, bounds.top, centerX + mBulgeRadius, top + mBulgeRadius);
+        mOutlinePath.arcTo(mBulgeRect, leftAngle, rightAngle - leftAngle, true);
+        mCornerRect.set(bounds.right - cornerSize, top, bounds.right, top + cornerSize);
+        mOutlinePath.arcTo(mCornerRect, rightAngle, 360 - rightAngle);
+        mCornerRect.set(bounds.right - cornerSize, bounds.bottom - cornerSize, bounds.right, bounds.bottom);
+        mOutlinePath.arcTo(mCornerRect, 0, 90);
+        mCornerRect.set(bounds.left, bounds.bottom - cornerSize, bounds.left + cornerSize, bounds.bottom);
+        mOutlinePath.arcTo(mCornerRect, 90, 90);
+        mCornerRect.set(bounds.left, top, bounds.left + cornerSize, top + cornerSize);
+        mOutlinePath.arcTo(mCornerRect, 180, leftAngle - 180);
+        mOutlinePath.close();
+        mHasOutlinePath = true;
+    }
+
+    @Override
+    public void getOutline(@NonNull Outline outline) {
+        if (mHasOutlinePath && mOutlinePath.isConvex()) {
+            outline.setConvexPath(mOutlinePath);
+        } else {
+            Rect bounds = getBounds();
+            outline.setRoundRect(bounds.left, bounds.top, bounds.right, bounds.bottom, mCornerRadius);
+        }
+        outline.setAlpha(mPaint.getAlpha() / 255f);
+    }
+
     @Override
     public void draw(@NonNull Canvas canvas) {
+        mRenderNodeCache.draw(canvas, getBounds());
+    }
+
+    private void drawContent(Canvas canvas) {
         Rect bounds = getBounds();
         float y = bounds.top + mBulgeRadius;
         mCornerRect.set(bounds.left, y, bounds.right, bounds.bottom);
@@ -38,13 +108,38 @@ public class RoundBulgeDrawable extends Drawable {
     }
 
     @Override
-    public void setAlpha(int alpha) {}
+    public void setAlpha(int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            mPaint.setAlpha(DrawableUtils.modulateAlpha(Color.alpha(mColor), alpha));
+            mRenderNodeCache.invalidate();
+            Callback callback = getCallback();
+            DrawableUtils.invalidateOutline(callback instanceof View ? (View) callback : null);
+            invalidateSelf();
+        }
+    }
 
     @Override
-    public void setColorFilter(@Nullable ColorFilter colorFilter) {}
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        mRenderNodeCache.invalidate();
+        invalidateSelf();
+    }
 
     @Override
     public int getOpacity() {
-        return PixelFormat.UNKNOWN;
+        if (mPaint.getAlpha() == 0) {
+            return PixelFormat.TRANSPARENT;
+        }
+        //only a plain rect, without bulge or corners, covers the bounds
+        if (mPaint.getAlpha() == 255 && mPaint.getColorFilter() == null && mCornerRadius <= 0 && mBulgeRadius <= 0) {
+            return PixelFormat.OPAQUE;
+        }
+        return PixelFormat.TRANSLUCENT;
     }
 }
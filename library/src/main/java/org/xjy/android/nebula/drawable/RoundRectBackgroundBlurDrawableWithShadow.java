@@ -5,44 +5,90 @@ import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
-import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PixelFormat;
-import android.graphics.RadialGradient;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.util.DisplayMetrics;
 import android.view.View;
 
+import org.xjy.android.common.BitmapPool;
 import org.xjy.android.common.BitmapUtils;
+import org.xjy.android.common.BlurDiskCache;
 import org.xjy.android.common.DimensionUtils;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Future;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 public class RoundRectBackgroundBlurDrawableWithShadow extends Drawable {
+    private static final int MEMORY_BUDGET_SAMPLE_SIZE = 16;
+
     private WeakReference<View> mView;
     private WeakReference<View> mBackgroundView;
+    private Bitmap mBackgroundBitmap;
     private int mBackgroundColor;
     private float mCornerRadius;
     private float mShadowSize;
     private float mInsetShadow;
     private int mShadowStartColor;
     private int mShadowEndColor;
+    private boolean mElevationShadow;
+    private int mBlurSampleSize = BitmapUtils.DEFAULT_BLUR_SAMPLE_SIZE;
+    private boolean mShareBackgroundBlur;
+    private boolean mMemoryBudgetMode;
+    private BlurDiskCache mBlurDiskCache;
+    private String mBlurSourceKey;
+    private int mAlpha = 255;
 
     private boolean mCardDirty = true;
     private RectF mCardBounds = new RectF();
+    private RectF mOutlineBounds = new RectF();
     private Path mCardPath = new Path();
     private Paint mCardPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private Matrix mCardShaderMatrix = new Matrix();
+    private Bitmap mCardBitmap;
+    private boolean mCardBitmapShared;
+    private boolean mCardBitmapComposed;
+    private int mCardBitmapByteCount;
+    private Paint mCardTintPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private SharedBackgroundBlur mSharedBlur;
+    private int[] mLocation = new int[2];
+    private RectF mCaptureRegion = new RectF();
+    private BackgroundCapture mBackgroundCapture = new BackgroundCapture();
+    private BackgroundTracker mBackgroundTracker;
+    private int mBackgroundVersion;
+    private float mCaptureOffsetX;
+    private float mCaptureOffsetY;
+    private float mCardBitmapOffsetX;
+    private float mCardBitmapOffsetY;
+    private int mCardBitmapSampleSize;
+    private boolean mKeepCardBitmap;
+    private float mSharedOffsetX;
+    private float mSharedOffsetY;
+    private Future<?> mBlurFuture;
+    private volatile int mBlurGeneration;
     private boolean mShadowDirty = true;
-    private Path mCornerShadowPath = new Path();
-    private Paint mCornerShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
-    private Paint mEdgeShadowPaint = new Paint(Paint.DITHER_FLAG);
+    private Bitmap mShadowBitmap;
+    private RectF mShadowRect = new RectF();
+    private Rect mShadowSrcRect = new Rect();
+    private RectF mShadowDstRect = new RectF();
+    private Paint mShadowPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RenderNodeCache mShadowRenderNodeCache = new RenderNodeCache(new RenderNodeCache.Renderer() {
+        @Override
+        public void render(Canvas canvas) {
+            drawShadow(canvas);
+        }
+    });
 
     public RoundRectBackgroundBlurDrawableWithShadow(View view) {
         mView = new WeakReference<>(view);
@@ -56,10 +102,35 @@ public class RoundRectBackgroundBlurDrawableWithShadow extends Drawable {
 
     public void setBackground(View backgroundView, int backgroundColor) {
         View oldBackgroundView = mBackgroundView == null ? null : mBackgroundView.get();
-        if (oldBackgroundView != backgroundView || mBackgroundColor != backgroundColor) {
+        if (oldBackgroundView != backgroundView || mBackgroundColor != backgroundColor || mBackgroundBitmap != null) {
+            mBackgroundBitmap = null;
             mBackgroundView = backgroundView == null ? null : new WeakReference<>(backgroundView);
             mBackgroundColor = backgroundColor;
-            mCardDirty = true;
+            if (oldBackgroundView != backgroundView) {
+                if (mBackgroundTracker != null) {
+                    mBackgroundTracker.removeListener(this);
+                }
+                mBackgroundTracker = backgroundView == null ? null : BackgroundTracker.get(backgroundView);
+                if (mBackgroundTracker != null) {
+                    mBackgroundTracker.addListener(this);
+                }
+            }
+            releaseSharedBlur();
+            invalidateCard();
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Uses {@code backgroundBitmap}, an already blurred image such as one from
+     * {@link BitmapUtils#decodeBlurred(String, Rect, int, int)}, instead of a background view. It is scaled to cover the
+     * card and tinted with {@code backgroundColor}; the caller keeps ownership of it.
+     */
+    public void setBackgroundBitmap(@Nullable Bitmap backgroundBitmap, int backgroundColor) {
+        if (mBackgroundBitmap != backgroundBitmap || mBackgroundView != null || mBackgroundColor != backgroundColor) {
+            setBackground(null, backgroundColor);
+            mBackgroundBitmap = backgroundBitmap;
+            invalidateCard();
             invalidateSelf();
         }
     }
@@ -70,8 +141,9 @@ public class RoundRectBackgroundBlurDrawableWithShadow extends Drawable {
         }
         if (mCornerRadius != cornerRadius) {
             mCornerRadius = cornerRadius;
-            mCardDirty = true;
+            invalidateCard();
             mShadowDirty = true;
+            DrawableUtils.invalidateOutline(mView.get());
             invalidateSelf();
         }
     }
@@ -82,8 +154,9 @@ public class RoundRectBackgroundBlurDrawableWithShadow extends Drawable {
         }
         if (mShadowSize != shadowSize) {
             mShadowSize = shadowSize;
-            mCardDirty = true;
+            invalidateCard();
             mShadowDirty = true;
+            DrawableUtils.invalidateOutline(mView.get());
             invalidateSelf();
         }
     }
@@ -97,8 +170,9 @@ public class RoundRectBackgroundBlurDrawableWithShadow extends Drawable {
         }
         if (mInsetShadow != insetShadow) {
             mInsetShadow = insetShadow;
-            mCardDirty = true;
+            invalidateCard();
             mShadowDirty = true;
+            DrawableUtils.invalidateOutline(mView.get());
             invalidateSelf();
         }
     }
@@ -119,143 +193,485 @@ public class RoundRectBackgroundBlurDrawableWithShadow extends Drawable {
         }
     }
 
+    /**
+     * On API 21+, leaves the shadow to the platform: the card fills the bounds as a plain rect, and the view clips it to
+     * the round rect outline and casts the shadow of its elevation on the RenderThread. The hand-drawn shadow and its
+     * padding are dropped. This drawable must be the view's background.
+     */
+    public void setElevationShadowEnabled(boolean enabled) {
+        enabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+        if (mElevationShadow != enabled) {
+            mElevationShadow = enabled;
+            View view = mView.get();
+            if (view != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                view.setClipToOutline(enabled);
+            }
+            invalidateCard();
+            DrawableUtils.invalidateOutline(view);
+            invalidateSelf();
+        }
+    }
+
+    public boolean isElevationShadowEnabled() {
+        return mElevationShadow;
+    }
+
+    public void setBlurSampleSize(int blurSampleSize) {
+        if (blurSampleSize < 1) {
+            throw new IllegalArgumentException("Invalid blur sample size " + blurSampleSize + ". Must be >= 1");
+        }
+        if (mBlurSampleSize != blurSampleSize) {
+            mBlurSampleSize = blurSampleSize;
+            releaseSharedBlur();
+            invalidateCard();
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * When enabled, cards over the same background view share one blurred snapshot of the whole background and only
+     * move their shader over it, so scrolling a card never re-blurs.
+     */
+    public void setShareBackgroundBlur(boolean shareBackgroundBlur) {
+        if (mShareBackgroundBlur != shareBackgroundBlur) {
+            mShareBackgroundBlur = shareBackgroundBlur;
+            releaseSharedBlur();
+            invalidateCard();
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Trades blur quality for memory on per-card blurs: the capture is taken at 1/{@value #MEMORY_BUDGET_SAMPLE_SIZE}
+     * scale, in RGB_565 when the background is opaque, blurred in place without a compose bitmap (the tint is drawn over
+     * it instead) and kept as a HARDWARE bitmap on API 26+.
+     */
+    public void setMemoryBudgetMode(boolean memoryBudgetMode) {
+        if (mMemoryBudgetMode != memoryBudgetMode) {
+            mMemoryBudgetMode = memoryBudgetMode;
+            invalidateCard();
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Persists blur results in {@code blurDiskCache} so a later cold start restores them instead of blurring again.
+     * {@code sourceKey} must identify the background content, e.g. the theme image name; pass null to disable.
+     */
+    public void setBlurDiskCache(@Nullable BlurDiskCache blurDiskCache, @Nullable String sourceKey) {
+        if (blurDiskCache != null && sourceKey == null) {
+            throw new IllegalArgumentException("Invalid source key null. Must be set with a disk cache");
+        }
+        if (mBlurDiskCache != blurDiskCache || (sourceKey != null && !sourceKey.equals(mBlurSourceKey))) {
+            mBlurDiskCache = blurDiskCache;
+            mBlurSourceKey = sourceKey;
+            if (mSharedBlur != null) {
+                mSharedBlur.setDiskCache(blurDiskCache, sourceKey);
+            }
+        }
+    }
+
+    /**
+     * Returns the bytes held by the blurred card bitmap this drawable owns. Bitmaps shared with other cards are not
+     * counted.
+     */
+    public int getBitmapByteCount() {
+        return mCardBitmapByteCount;
+    }
+
+    /**
+     * Re-blurs the card. Changes the background drawable reports through its callback, and moves of the card over it,
+     * are picked up without calling this.
+     */
     public void backgroundInvalid() {
-        mCardDirty = true;
+        invalidateCard();
+        if (mSharedBlur != null) {
+            mSharedBlur.invalidate();
+        }
         invalidateSelf();
     }
 
+    /**
+     * Forces every card over {@code backgroundView} to re-blur, for background changes that its drawable does not report
+     * through its callback.
+     */
+    public static void invalidateSharedBackground(View backgroundView) {
+        BackgroundTracker.invalidate(backgroundView);
+    }
+
     @Override
     protected void onBoundsChange(Rect bounds) {
         super.onBoundsChange(bounds);
-        mCardDirty = true;
-        mShadowDirty = true;
+        invalidateCard();
     }
 
     @Override
     public void draw(@NonNull Canvas canvas) {
         Rect bounds = getBounds();
 
+        if (!mCardDirty && mSharedBlur == null && mBackgroundTracker != null) {
+            checkBackground();
+        }
         if (mCardDirty) {
-            float offset = mShadowSize - mInsetShadow;
-            mCardBounds.set(bounds.left + offset, bounds.top + offset, bounds.right - offset, bounds.bottom - mShadowSize);
+            getCardBounds(bounds, mCardBounds);
             mCardPath.reset();
             mCardPath.setFillType(Path.FillType.EVEN_ODD);
-            mCardPath.addRoundRect(mCardBounds, mCornerRadius, mCornerRadius, Path.Direction.CW);
-            if (mBackgroundView == null) {
-                mCardPaint.setShader(null);
+            if (mElevationShadow) {
+                //the view clips the corners to the outline
+                mCardPath.addRect(mCardBounds, Path.Direction.CW);
+            } else {
+                mCardPath.addRoundRect(mCardBounds, mCornerRadius, mCornerRadius, Path.Direction.CW);
+            }
+            if (mBackgroundView == null && mBackgroundBitmap != null) {
+                setCardBitmap(mBackgroundBitmap, true);
+                mCardBitmapComposed = false;
+                float scale = Math.max(mCardBounds.width() / mBackgroundBitmap.getWidth(), mCardBounds.height() / mBackgroundBitmap.getHeight());
+                mCardShaderMatrix.setScale(scale, scale);
+                mCardShaderMatrix.postTranslate(mCardBounds.centerX() - mBackgroundBitmap.getWidth() * scale / 2,
+                        mCardBounds.centerY() - mBackgroundBitmap.getHeight() * scale / 2);
+                mCardPaint.getShader().setLocalMatrix(mCardShaderMatrix);
+                mCardPaint.setColor(mBackgroundColor == 0 ? Color.BLACK : BlurTask.TINTED_BLUR_ALPHA << 24);
+                mCardDirty = false;
+            } else if (mBackgroundView == null) {
+                setCardBitmap(null, false);
                 mCardPaint.setColor(mBackgroundColor);
                 mCardDirty = false;
+            } else if (mShareBackgroundBlur) {
+                View backgroundView = mBackgroundView.get();
+                if (backgroundView != null) {
+                    if (mSharedBlur == null) {
+                        mSharedBlur = SharedBackgroundBlur.acquire(backgroundView, mBackgroundColor, mBlurSampleSize, this);
+                        if (mBlurDiskCache != null) {
+                            mSharedBlur.setDiskCache(mBlurDiskCache, mBlurSourceKey);
+                        }
+                    }
+                    Bitmap bitmap = mSharedBlur.getBitmap();
+                    if (bitmap == null) {
+                        mCardPaint.setColor(mBackgroundColor);
+                    }
+                    setSharedBitmap(bitmap);
+                    mCardDirty = false;
+                }
             } else {
                 View view = mView.get();
                 View backgroundView = mBackgroundView.get();
                 if (view != null && backgroundView != null) {
                     Drawable backgroundDrawable = backgroundView.getBackground();
                     if (backgroundDrawable != null) {
-                        int width = (int) mCardBounds.width();
-                        int height = (int) mCardBounds.height();
-                        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                        Canvas tempCanvas = new Canvas(bitmap);
-                        int[] location = new int[2];
-                        backgroundView.getLocationOnScreen(location);
-                        int dx = location[0];
-                        int dy = location[1];
-                        view.getLocationOnScreen(location);
-                        int save = tempCanvas.save();
-                        tempCanvas.translate((backgroundView.getWidth() == view.getWidth() ? 0 : dx - location[0]) - mShadowSize, dy - location[1] - mShadowSize);
-                        backgroundDrawable.draw(tempCanvas);
-                        tempCanvas.restoreToCount(save);
-                        Bitmap finalBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                        tempCanvas = new Canvas(finalBitmap);
-                        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
-                        if (mBackgroundColor != 0) {
-                            BitmapUtils.blur(bitmap, 100);
-                            tempCanvas.drawColor(mBackgroundColor);
-                            paint.setAlpha(35);
-                            tempCanvas.drawBitmap(bitmap, 0, 0, paint);
+                        boolean inPlace = mMemoryBudgetMode;
+                        int sampleSize = inPlace ? Math.max(mBlurSampleSize, MEMORY_BUDGET_SAMPLE_SIZE) : mBlurSampleSize;
+                        int width = BitmapUtils.getBlurSampledSize((int) mCardBounds.width(), sampleSize);
+                        int height = BitmapUtils.getBlurSampledSize((int) mCardBounds.height(), sampleSize);
+                        backgroundView.getLocationOnScreen(mLocation);
+                        int dx = mLocation[0];
+                        int dy = mLocation[1];
+                        view.getLocationOnScreen(mLocation);
+                        mCaptureOffsetX = backgroundView.getWidth() == view.getWidth() ? 0 : dx - mLocation[0];
+                        mCaptureOffsetY = dy - mLocation[1];
+                        mBackgroundVersion = mBackgroundTracker.getVersion();
+                        float shadowSize = mElevationShadow ? 0 : mShadowSize;
+                        float left = shadowSize - mCaptureOffsetX;
+                        float top = shadowSize - mCaptureOffsetY;
+                        String diskKey = null;
+                        //a re-blur for a move would write a file per scroll position that is never hit again; the task
+                        //reads the disk cache on the worker, off the frame
+                        if (mBlurDiskCache != null && !mKeepCardBitmap) {
+                            diskKey = BlurDiskCache.buildKey(mBlurSourceKey + '@' + (int) left + ',' + (int) top + (inPlace ? "/raw" : ""),
+                                    width, height, BlurTask.getBlurRadius(mBackgroundColor, sampleSize), mBackgroundColor);
+                        }
+                        Bitmap.Config config = inPlace && backgroundDrawable.getOpacity() == PixelFormat.OPAQUE ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+                        Bitmap bitmap = BitmapPool.getDefault().get(width, height, config);
+                        mCaptureRegion.set(left, top, left + width * sampleSize, top + height * sampleSize);
+                        mBackgroundCapture.capture(backgroundDrawable, mCaptureRegion, sampleSize, new Canvas(bitmap));
+                        if (mKeepCardBitmap && mCardBitmap != null) {
+                            translateCardBitmap();
                         } else {
-                            BitmapUtils.blur(bitmap, 50);
-                            tempCanvas.drawBitmap(bitmap, 0, 0, paint);
-                            tempCanvas.drawColor(0x1affffff);
+                            setCardBitmap(null, false);
+                            mCardPaint.setColor(mBackgroundColor);
                         }
-                        mCardPaint.setShader(new BitmapShader(finalBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+                        mBlurFuture = new CardBlurTask(this, ++mBlurGeneration, bitmap, mBackgroundColor, sampleSize, inPlace,
+                                mCaptureOffsetX, mCaptureOffsetY).setDiskCache(mBlurDiskCache, diskKey).submit();
                         mCardDirty = false;
+                        mKeepCardBitmap = false;
                     }
                 }
             }
         }
+        if (mSharedBlur != null) {
+            Bitmap bitmap = mSharedBlur.getBitmap();
+            if (bitmap != mCardBitmap) {
+                setSharedBitmap(bitmap);
+            } else {
+                updateSharedShaderMatrix(false);
+            }
+        }
 
-        float outerRadius = mCornerRadius + mShadowSize;
         if (mShadowDirty) {
-            mCornerShadowPath.reset();
-            mCornerShadowPath.setFillType(Path.FillType.EVEN_ODD);
-            RectF innerBounds = new RectF(-mCornerRadius, - mCornerRadius, mCornerRadius, mCornerRadius);
-            RectF outerBounds = new RectF(innerBounds);
-            outerBounds.inset(-mShadowSize, -mShadowSize);
-            mCornerShadowPath.moveTo(-mCornerRadius, 0);
-            mCornerShadowPath.rLineTo(-mShadowSize, 0);
-            mCornerShadowPath.arcTo(outerBounds, 180, 90, false);
-            mCornerShadowPath.arcTo(innerBounds, 270, -90, false);
-            mCornerShadowPath.close();
-            mCornerShadowPaint.setShader(new RadialGradient(0, 0, outerRadius, new int[]{mShadowStartColor, mShadowStartColor, mShadowEndColor},
-                    new float[]{0, mCornerRadius / outerRadius, 1}, Shader.TileMode.CLAMP));
-            mEdgeShadowPaint.setShader(new LinearGradient(0, -mCornerRadius, 0, -outerRadius, mShadowStartColor, mShadowEndColor, Shader.TileMode.CLAMP));
+            mShadowBitmap = CardShadowCache.get(mCornerRadius, mShadowSize, mShadowStartColor, mShadowEndColor);
             mShadowDirty = false;
+            mShadowRenderNodeCache.invalidate();
+        }
+        if (mShadowBitmap != null && !mElevationShadow) {
+            mShadowRenderNodeCache.draw(canvas, bounds);
         }
 
-        canvas.translate(0, mInsetShadow);
-        float edgeShadowTop = -outerRadius;
+        Shader hardwareShader = null;
+        Bitmap softwareBitmap = null;
+        if (mCardBitmap != null && !canvas.isHardwareAccelerated() && isHardwareBitmap(mCardBitmap)) {
+            //HARDWARE bitmaps can't be read by a software canvas, e.g. a View#draw(Canvas) screenshot
+            softwareBitmap = mCardBitmap.copy(Bitmap.Config.ARGB_8888, false);
+            if (softwareBitmap != null) {
+                hardwareShader = mCardPaint.getShader();
+                Shader softwareShader = new BitmapShader(softwareBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+                softwareShader.setLocalMatrix(mCardShaderMatrix);
+                mCardPaint.setShader(softwareShader);
+            }
+        }
+        int cardAlpha = mCardPaint.getAlpha();
+        mCardPaint.setAlpha(DrawableUtils.modulateAlpha(cardAlpha, mAlpha));
+        if (mCardBitmap != null && !mCardBitmapComposed) {
+            if (mBackgroundColor != 0) {
+                setCardTintColor(mBackgroundColor);
+                canvas.drawPath(mCardPath, mCardTintPaint);
+                canvas.drawPath(mCardPath, mCardPaint);
+            } else {
+                canvas.drawPath(mCardPath, mCardPaint);
+                setCardTintColor(BlurTask.BLUR_HIGHLIGHT_COLOR);
+                canvas.drawPath(mCardPath, mCardTintPaint);
+            }
+        } else {
+            canvas.drawPath(mCardPath, mCardPaint);
+        }
+        mCardPaint.setAlpha(cardAlpha);
+        if (hardwareShader != null) {
+            mCardPaint.setShader(hardwareShader);
+            softwareBitmap.recycle();
+        }
+    }
+
+    private static boolean isHardwareBitmap(Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+    }
+
+    private void setCardTintColor(int color) {
+        mCardTintPaint.setColor(color);
+        mCardTintPaint.setAlpha(DrawableUtils.modulateAlpha(Color.alpha(color), mAlpha));
+    }
+
+    private void getCardBounds(Rect bounds, RectF cardBounds) {
+        if (mElevationShadow) {
+            cardBounds.set(bounds);
+        } else {
+            float offset = mShadowSize - mInsetShadow;
+            cardBounds.set(bounds.left + offset, bounds.top + offset, bounds.right - offset, bounds.bottom - mShadowSize);
+        }
+    }
+
+    private void drawShadow(Canvas canvas) {
         float inset = mCornerRadius + mInsetShadow;
-        float edgeShadowInset = inset * 2;
-        float hEdgeShadowWidth = mCardBounds.width() - edgeShadowInset;
-        float vEdgeShadowWidth = mCardBounds.height() - edgeShadowInset;
-        //LT
-        int save = canvas.save();
-        canvas.translate(mCardBounds.left + inset, mCardBounds.top + inset);
-        canvas.drawPath(mCornerShadowPath, mCornerShadowPaint);
-        if (hEdgeShadowWidth > 0) {
-            canvas.drawRect(0, edgeShadowTop, hEdgeShadowWidth, -mCornerRadius, mEdgeShadowPaint);
-        }
-        canvas.restoreToCount(save);
-        //RT
-        save = canvas.save();
-        canvas.translate(mCardBounds.right - inset, mCardBounds.top + inset);
-        canvas.rotate(90);
-        canvas.drawPath(mCornerShadowPath, mCornerShadowPaint);
-        if (vEdgeShadowWidth > 0) {
-            canvas.drawRect(0, edgeShadowTop, vEdgeShadowWidth, -mCornerRadius, mEdgeShadowPaint);
-        }
-        canvas.restoreToCount(save);
-        //RB
-        save = canvas.save();
-        canvas.translate(mCardBounds.right - inset, mCardBounds.bottom - inset);
-        canvas.rotate(180);
-        canvas.drawPath(mCornerShadowPath, mCornerShadowPaint);
-        if (hEdgeShadowWidth > 0) {
-            canvas.drawRect(0, edgeShadowTop, hEdgeShadowWidth, -mCornerRadius, mEdgeShadowPaint);
-        }
-        canvas.restoreToCount(save);
-        //LB
-        save = canvas.save();
-        canvas.translate(mCardBounds.left + inset, mCardBounds.bottom - inset);
-        canvas.rotate(270);
-        canvas.drawPath(mCornerShadowPath, mCornerShadowPaint);
-        if (vEdgeShadowWidth > 0) {
-            canvas.drawRect(0, edgeShadowTop, vEdgeShadowWidth, -mCornerRadius, mEdgeShadowPaint);
-        }
-        canvas.restoreToCount(save);
-        canvas.translate(0, -mInsetShadow);
-
-        canvas.drawPath(mCardPath, mCardPaint);
+        mShadowRect.set(mCardBounds.left + inset, mCardBounds.top + inset + mInsetShadow, mCardBounds.right - inset, mCardBounds.bottom - inset + mInsetShadow);
+        CardShadowCache.draw(canvas, mShadowBitmap, mShadowRect, mShadowPaint, mShadowSrcRect, mShadowDstRect);
+    }
+
+    /**
+     * Re-blurs the card if the background content changed or the card moved over it. A moved card keeps showing its
+     * previous blur, translated along, until the new one is delivered; a solid color background is never re-blurred for
+     * a move.
+     */
+    private void checkBackground() {
+        View view = mView.get();
+        View backgroundView = mBackgroundView.get();
+        if (view == null || backgroundView == null) {
+            return;
+        }
+        if (mBackgroundTracker.getVersion() != mBackgroundVersion) {
+            invalidateCard();
+            return;
+        }
+        backgroundView.getLocationOnScreen(mLocation);
+        int dx = mLocation[0];
+        int dy = mLocation[1];
+        view.getLocationOnScreen(mLocation);
+        float offsetX = backgroundView.getWidth() == view.getWidth() ? 0 : dx - mLocation[0];
+        float offsetY = dy - mLocation[1];
+        if ((offsetX != mCaptureOffsetX || offsetY != mCaptureOffsetY) && !(backgroundView.getBackground() instanceof ColorDrawable)) {
+            invalidateCard();
+            mKeepCardBitmap = true;
+        }
+    }
+
+    private void translateCardBitmap() {
+        mCardShaderMatrix.setScale(mCardBitmapSampleSize, mCardBitmapSampleSize);
+        mCardShaderMatrix.postTranslate(mCaptureOffsetX - mCardBitmapOffsetX, mCaptureOffsetY - mCardBitmapOffsetY);
+        mCardPaint.getShader().setLocalMatrix(mCardShaderMatrix);
+    }
+
+    private void invalidateCard() {
+        mCardDirty = true;
+        mKeepCardBitmap = false;
+        if (mBlurFuture != null) {
+            mBlurFuture.cancel(false);
+            mBlurFuture = null;
+        }
+        mBlurGeneration++;
+    }
+
+    private void releaseSharedBlur() {
+        if (mSharedBlur != null) {
+            setCardBitmap(null, false);
+            mSharedBlur.release(this);
+            mSharedBlur = null;
+        }
+    }
+
+    void onSharedBackgroundBlurChanged(Bitmap bitmap) {
+        if (setSharedBitmap(bitmap)) {
+            invalidateSelf();
+        }
+    }
+
+    private boolean setSharedBitmap(Bitmap bitmap) {
+        if (bitmap == mCardBitmap) {
+            return false;
+        }
+        setCardBitmap(bitmap, true);
+        if (bitmap == null) {
+            mCardPaint.setColor(mBackgroundColor);
+        } else {
+            mCardPaint.setColor(Color.BLACK);
+            updateSharedShaderMatrix(true);
+        }
+        return true;
+    }
+
+    private void updateSharedShaderMatrix(boolean force) {
+        View view = mView.get();
+        View backgroundView = mBackgroundView == null ? null : mBackgroundView.get();
+        if (mCardBitmap == null || view == null || backgroundView == null) {
+            return;
+        }
+        backgroundView.getLocationOnScreen(mLocation);
+        int dx = mLocation[0];
+        int dy = mLocation[1];
+        view.getLocationOnScreen(mLocation);
+        float offsetX = backgroundView.getWidth() == view.getWidth() ? 0 : dx - mLocation[0];
+        float offsetY = dy - mLocation[1];
+        if (force || offsetX != mSharedOffsetX || offsetY != mSharedOffsetY) {
+            mSharedOffsetX = offsetX;
+            mSharedOffsetY = offsetY;
+            int sampleSize = mSharedBlur.getSampleSize();
+            mCardShaderMatrix.setScale(sampleSize, sampleSize);
+            mCardShaderMatrix.postTranslate(offsetX, offsetY);
+            mCardPaint.getShader().setLocalMatrix(mCardShaderMatrix);
+        }
+    }
+
+    private void onBlurCompleted(Bitmap bitmap, int sampleSize, boolean composed, float offsetX, float offsetY) {
+        mBlurFuture = null;
+        applyCardBitmap(bitmap, sampleSize, composed, offsetX, offsetY);
+        invalidateSelf();
+    }
+
+    private void applyCardBitmap(Bitmap bitmap, int sampleSize, boolean composed, float offsetX, float offsetY) {
+        setCardBitmap(bitmap, false);
+        mCardBitmapSampleSize = sampleSize;
+        mCardBitmapOffsetX = offsetX;
+        mCardBitmapOffsetY = offsetY;
+        mCardBitmapComposed = composed;
+        mCardShaderMatrix.setScale(sampleSize, sampleSize);
+        mCardPaint.getShader().setLocalMatrix(mCardShaderMatrix);
+        mCardPaint.setColor(composed || mBackgroundColor == 0 ? Color.BLACK : BlurTask.TINTED_BLUR_ALPHA << 24);
+    }
+
+    private void setCardBitmap(Bitmap bitmap, boolean shared) {
+        if (mCardBitmap != null && !mCardBitmapShared) {
+            DeferredBitmapRelease.release(mCardBitmap);
+        }
+        mCardBitmap = bitmap;
+        mCardBitmapShared = shared;
+        mCardBitmapComposed = true;
+        mCardBitmapByteCount = bitmap == null || shared ? 0 : BitmapUtils.getByteCount(bitmap);
+        mCardPaint.setShader(bitmap == null ? null : new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+    }
+
+    private static class CardBlurTask extends BlurTask {
+        private final WeakReference<RoundRectBackgroundBlurDrawableWithShadow> mDrawable;
+        private final int mGeneration;
+        private final int mSampleSize;
+        private final boolean mInPlace;
+        private final float mOffsetX;
+        private final float mOffsetY;
+
+        CardBlurTask(RoundRectBackgroundBlurDrawableWithShadow drawable, int generation, Bitmap bitmap, int backgroundColor, int sampleSize, boolean inPlace,
+                     float offsetX, float offsetY) {
+            super(bitmap, backgroundColor, sampleSize, inPlace);
+            mDrawable = new WeakReference<>(drawable);
+            mGeneration = generation;
+            mSampleSize = sampleSize;
+            mInPlace = inPlace;
+            mOffsetX = offsetX;
+            mOffsetY = offsetY;
+        }
+
+        @Override
+        boolean isStale() {
+            RoundRectBackgroundBlurDrawableWithShadow drawable = mDrawable.get();
+            return drawable == null || drawable.mBlurGeneration != mGeneration;
+        }
+
+        @Override
+        void onCompleted(Bitmap bitmap) {
+            mDrawable.get().onBlurCompleted(bitmap, mSampleSize, !mInPlace, mOffsetX, mOffsetY);
+        }
     }
 
     @Override
-    public void setAlpha(int alpha) {}
+    public void setAlpha(int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            mShadowPaint.setAlpha(alpha);
+            mShadowRenderNodeCache.invalidate();
+            DrawableUtils.invalidateOutline(mView.get());
+            invalidateSelf();
+        }
+    }
 
     @Override
-    public void setColorFilter(@Nullable ColorFilter colorFilter) {}
+    public int getAlpha() {
+        return mAlpha;
+    }
 
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mCardPaint.setColorFilter(colorFilter);
+        mCardTintPaint.setColorFilter(colorFilter);
+        mShadowPaint.setColorFilter(colorFilter);
+        mShadowRenderNodeCache.invalidate();
+        invalidateSelf();
+    }
+
+    /**
+     * Returns {@link PixelFormat#OPAQUE} only for an opaque solid color card that covers the whole bounds: one without
+     * shadow or corners, or one in elevation shadow mode.
+     */
     @Override
     public int getOpacity() {
-        return PixelFormat.UNKNOWN;
+        if (mAlpha == 0) {
+            return PixelFormat.TRANSPARENT;
+        }
+        if (mAlpha == 255 && mCardPaint.getColorFilter() == null && mCornerRadius <= 0 && (mElevationShadow || mShadowSize <= 0)
+                && mBackgroundView == null && mBackgroundBitmap == null && Color.alpha(mBackgroundColor) == 255) {
+            return PixelFormat.OPAQUE;
+        }
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public void getOutline(@NonNull Outline outline) {
+        getCardBounds(getBounds(), mOutlineBounds);
+        outline.setRoundRect(Math.round(mOutlineBounds.left), Math.round(mOutlineBounds.top), Math.round(mOutlineBounds.right),
+                Math.round(mOutlineBounds.bottom), mCornerRadius);
+        // Outside elevation shadow mode the shadow is hand-drawn, so keep the view from casting a second one.
+        outline.setAlpha(mElevationShadow ? mAlpha / 255f : 0f);
     }
 }
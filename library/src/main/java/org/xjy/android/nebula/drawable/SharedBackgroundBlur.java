@@ -0,0 +1,190 @@
+package org.xjy.android.nebula.drawable;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import org.xjy.android.common.BitmapPool;
+import org.xjy.android.common.BitmapUtils;
+import org.xjy.android.common.BlurDiskCache;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * One blurred, downsampled snapshot of a whole background view, shared by every card drawn over that view with the same
+ * tint and sample size. Cards sample their own region of it through a shader matrix.
+ */
+class SharedBackgroundBlur {
+    private static final WeakHashMap<View, ArrayList<SharedBackgroundBlur>> sBlurs = new WeakHashMap<>();
+
+    private final WeakReference<View> mBackgroundView;
+    private final int mBackgroundColor;
+    private final int mSampleSize;
+    private final ArrayList<WeakReference<RoundRectBackgroundBlurDrawableWithShadow>> mCards = new ArrayList<>();
+
+    private final BackgroundTracker mBackgroundTracker;
+    private int mBackgroundVersion;
+    private final RectF mCaptureRegion = new RectF();
+    private final BackgroundCapture mBackgroundCapture = new BackgroundCapture();
+
+    private BlurDiskCache mDiskCache;
+    private String mSourceKey;
+
+    private Bitmap mBitmap;
+    private boolean mDirty = true;
+    private Future<?> mFuture;
+    private volatile int mGeneration;
+
+    private SharedBackgroundBlur(View backgroundView, int backgroundColor, int sampleSize) {
+        mBackgroundView = new WeakReference<>(backgroundView);
+        mBackgroundTracker = BackgroundTracker.get(backgroundView);
+        mBackgroundColor = backgroundColor;
+        mSampleSize = sampleSize;
+    }
+
+    static SharedBackgroundBlur acquire(View backgroundView, int backgroundColor, int sampleSize, RoundRectBackgroundBlurDrawableWithShadow card) {
+        ArrayList<SharedBackgroundBlur> blurs = sBlurs.get(backgroundView);
+        if (blurs == null) {
+            blurs = new ArrayList<>();
+            sBlurs.put(backgroundView, blurs);
+        }
+        SharedBackgroundBlur blur = null;
+        for (int i = 0, size = blurs.size(); i < size; i++) {
+            SharedBackgroundBlur b = blurs.get(i);
+            if (b.mBackgroundColor == backgroundColor && b.mSampleSize == sampleSize) {
+                blur = b;
+                break;
+            }
+        }
+        if (blur == null) {
+            blur = new SharedBackgroundBlur(backgroundView, backgroundColor, sampleSize);
+            blurs.add(blur);
+        }
+        blur.mCards.add(new WeakReference<>(card));
+        return blur;
+    }
+
+    void release(RoundRectBackgroundBlurDrawableWithShadow card) {
+        for (int i = mCards.size() - 1; i >= 0; i--) {
+            RoundRectBackgroundBlurDrawableWithShadow c = mCards.get(i).get();
+            if (c == null || c == card) {
+                mCards.remove(i);
+            }
+        }
+        if (mCards.isEmpty()) {
+            cancel();
+            DeferredBitmapRelease.release(mBitmap);
+            mBitmap = null;
+            View backgroundView = mBackgroundView.get();
+            ArrayList<SharedBackgroundBlur> blurs = backgroundView == null ? null : sBlurs.get(backgroundView);
+            if (blurs != null) {
+                blurs.remove(this);
+                if (blurs.isEmpty()) {
+                    sBlurs.remove(backgroundView);
+                }
+            }
+        }
+    }
+
+    void setDiskCache(BlurDiskCache diskCache, String sourceKey) {
+        mDiskCache = diskCache;
+        mSourceKey = sourceKey;
+    }
+
+    void invalidate() {
+        mDirty = true;
+    }
+
+    int getSampleSize() {
+        return mSampleSize;
+    }
+
+    /**
+     * Returns the latest snapshot, starting a new capture first if the background changed. The previous snapshot stays
+     * valid until the new one is delivered.
+     */
+    Bitmap getBitmap() {
+        int backgroundVersion = mBackgroundTracker.getVersion();
+        if (mDirty || backgroundVersion != mBackgroundVersion) {
+            mBackgroundVersion = backgroundVersion;
+            cancel();
+            render();
+        }
+        return mBitmap;
+    }
+
+    private void render() {
+        mDirty = true;
+        View backgroundView = mBackgroundView.get();
+        if (backgroundView == null) {
+            return;
+        }
+        Drawable backgroundDrawable = backgroundView.getBackground();
+        int width = backgroundView.getWidth();
+        int height = backgroundView.getHeight();
+        if (backgroundDrawable == null || width <= 0 || height <= 0) {
+            return;
+        }
+        int sampledWidth = BitmapUtils.getBlurSampledSize(width, mSampleSize);
+        int sampledHeight = BitmapUtils.getBlurSampledSize(height, mSampleSize);
+        String diskKey = null;
+        if (mDiskCache != null) {
+            diskKey = BlurDiskCache.buildKey(mSourceKey, sampledWidth, sampledHeight, BlurTask.getBlurRadius(mBackgroundColor, mSampleSize), mBackgroundColor);
+        }
+        Bitmap bitmap = BitmapPool.getDefault().get(sampledWidth, sampledHeight, Bitmap.Config.ARGB_8888);
+        mCaptureRegion.set(0, 0, width, height);
+        mBackgroundCapture.capture(backgroundDrawable, mCaptureRegion, mSampleSize, new Canvas(bitmap));
+        mFuture = new SnapshotBlurTask(this, ++mGeneration, bitmap).setDiskCache(mDiskCache, diskKey).submit();
+        mDirty = false;
+    }
+
+    private void cancel() {
+        if (mFuture != null) {
+            mFuture.cancel(false);
+            mFuture = null;
+        }
+        mGeneration++;
+    }
+
+    private void onBlurCompleted(Bitmap bitmap) {
+        mFuture = null;
+        Bitmap oldBitmap = mBitmap;
+        mBitmap = bitmap;
+        for (int i = mCards.size() - 1; i >= 0; i--) {
+            RoundRectBackgroundBlurDrawableWithShadow card = mCards.get(i).get();
+            if (card == null) {
+                mCards.remove(i);
+            } else {
+                card.onSharedBackgroundBlurChanged(bitmap);
+            }
+        }
+        DeferredBitmapRelease.release(oldBitmap);
+    }
+
+    private static class SnapshotBlurTask extends BlurTask {
+        private final WeakReference<SharedBackgroundBlur> mBlur;
+        private final int mGeneration;
+
+        SnapshotBlurTask(SharedBackgroundBlur blur, int generation, Bitmap bitmap) {
+            super(bitmap, blur.mBackgroundColor, blur.mSampleSize);
+            mBlur = new WeakReference<>(blur);
+            mGeneration = generation;
+        }
+
+        @Override
+        boolean isStale() {
+            SharedBackgroundBlur blur = mBlur.get();
+            return blur == null || blur.mGeneration != mGeneration;
+        }
+
+        @Override
+        void onCompleted(Bitmap bitmap) {
+            mBlur.get().onBlurCompleted(bitmap);
+        }
+    }
+}
@@ -10,6 +10,8 @@ import android.graphics.Rect;
 import android.graphics.Shader;
 import android.graphics.drawable.Drawable;
 
+import org.xjy.android.common.ShaderCache;
+
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -20,6 +22,12 @@ public class StaticMeteorDrawable extends Drawable {
     private LinearGradient mTopShader;
     private LinearGradient mRightShader;
     private LinearGradient mBottomShader;
+    private final RenderNodeCache mRenderNodeCache = new RenderNodeCache(new RenderNodeCache.Renderer() {
+        @Override
+        public void render(Canvas canvas) {
+            drawContent(canvas);
+        }
+    });
 
     public StaticMeteorDrawable(float strokeWidth) {
         mPaint = new Paint();
@@ -28,8 +36,27 @@ public class StaticMeteorDrawable extends Drawable {
         mPaint.setStrokeWidth(strokeWidth);
     }
 
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        float leftY = bounds.top + bounds.height() * 0.6f;
+        float topX = bounds.left + bounds.width() * 0.6f;
+        float rightY = bounds.bottom - bounds.height() * 0.6f;
+        float bottomX = bounds.right - bounds.width() * 0.6f;
+        mLeftShader = ShaderCache.getLinearGradient(bounds.left, bounds.top, bounds.left, leftY, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
+        mTopShader = ShaderCache.getLinearGradient(bounds.left, bounds.top, topX, bounds.top, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
+        mRightShader = ShaderCache.getLinearGradient(bounds.right, bounds.bottom, bounds.right, rightY, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
+        mBottomShader = ShaderCache.getLinearGradient(bounds.right, bounds.bottom, bottomX, bounds.bottom, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
+    }
+
     @Override
     public void draw(@NonNull Canvas canvas) {
+        mRenderNodeCache.draw(canvas, getBounds());
+    }
+
+    private void drawContent(Canvas canvas) {
+        if (mLeftShader == null) {
+            return;
+        }
         Rect bounds = getBounds();
         int width = bounds.width();
         int height = bounds.height();
@@ -41,42 +68,45 @@ public class StaticMeteorDrawable extends Drawable {
         float bottomX = bounds.right - horizontalLength;
 
         //left
-        if (mLeftShader == null) {
-            mLeftShader = new LinearGradient(bounds.left, bounds.top, bounds.left, leftY, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
-        }
         mPaint.setShader(mLeftShader);
         canvas.drawLine(bounds.left, bounds.top, bounds.left, leftY, mPaint);
 
         //top
-        if (mTopShader == null) {
-            mTopShader = new LinearGradient(bounds.left, bounds.top, topX, bounds.top, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
-        }
         mPaint.setShader(mTopShader);
         canvas.drawLine(bounds.left, bounds.top, topX, bounds.top, mPaint);
 
         //right
-        if (mRightShader == null) {
-            mRightShader = new LinearGradient(bounds.right, bounds.bottom, bounds.right, rightY, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
-        }
         mPaint.setShader(mRightShader);
         canvas.drawLine(bounds.right, bounds.bottom, bounds.right, rightY, mPaint);
 
         //bottom
-        if (mBottomShader == null) {
-            mBottomShader = new LinearGradient(bounds.right, bounds.bottom, bottomX, bounds.bottom, 0x00ffffff, 0xffffffff, Shader.TileMode.CLAMP);
-        }
         mPaint.setShader(mBottomShader);
         canvas.drawLine(bounds.right, bounds.bottom, bottomX, bounds.bottom, mPaint);
     }
 
     @Override
-    public void setAlpha(@IntRange(from = 0, to = 255) int alpha) {}
+    public void setAlpha(@IntRange(from = 0, to = 255) int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            mRenderNodeCache.invalidate();
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
 
     @Override
-    public void setColorFilter(@Nullable ColorFilter colorFilter) {}
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        mRenderNodeCache.invalidate();
+        invalidateSelf();
+    }
 
     @Override
     public int getOpacity() {
-        return PixelFormat.UNKNOWN;
+        return mPaint.getAlpha() == 0 ? PixelFormat.TRANSPARENT : PixelFormat.TRANSLUCENT;
     }
 }
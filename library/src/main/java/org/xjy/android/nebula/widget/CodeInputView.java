@@ -1,6 +1,5 @@
 package org.xjy.android.nebula.widget;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
@@ -12,13 +11,15 @@ import android.util.AttributeSet;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.inputmethod.BaseInputConnection;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
 import android.view.inputmethod.InputMethodManager;
 
 import org.xjy.android.nebula.R;
+import org.xjy.android.nebula.animation.FrameClock;
+import org.xjy.android.nebula.animation.LutInterpolator;
+import org.xjy.android.nebula.animation.MotionPolicy;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -29,6 +30,9 @@ import androidx.annotation.IntRange;
 import androidx.annotation.Nullable;
 
 public class CodeInputView extends View {
+    private static final long UNDERLINE_ANIMATION_DURATION = 150;
+    private static final LutInterpolator sUnderlineInterpolator = LutInterpolator.ACCELERATE_DECELERATE;
+
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({InputType.TYPE_CLASS_NUMBER, InputType.TYPE_CLASS_TEXT})
     @interface CodeInputType {}
@@ -53,7 +57,22 @@ public class CodeInputView extends View {
 
     private Stack<String> mText = new Stack<>();
     private int mAnimatingUnderlineWidth = -1;
-    private ValueAnimator mUnderlineAnimator;
+    private long mUnderlineAnimationStartTime;
+    private long mUnderlineAnimationDuration;
+    private final FrameClock.Callback mUnderlineFrameCallback = new FrameClock.Callback() {
+        @Override
+        public void onFrame(long frameTime) {
+            if (mUnderlineAnimationStartTime < 0) {
+                mUnderlineAnimationStartTime = frameTime;
+            }
+            float fraction = Math.min(1f, (float) (frameTime - mUnderlineAnimationStartTime) / mUnderlineAnimationDuration);
+            mAnimatingUnderlineWidth = (int) (mUnderlineWidth * sUnderlineInterpolator.getInterpolation(fraction));
+            if (fraction >= 1f) {
+                FrameClock.getInstance().unsubscribe(this);
+            }
+            invalidateUnderline();
+        }
+    };
 
     private OnCompleteListener mOnCompleteListener;
     private OnCodeChangedListener mOnCodeChangedListener;
@@ -89,19 +108,6 @@ public class CodeInputView extends View {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             setDefaultFocusHighlightEnabled(false);
         }
-
-        mUnderlineAnimator = ValueAnimator.ofInt(0, mUnderlineWidth);
-        mUnderlineAnimator.setDuration(150);
-        mUnderlineAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        mUnderlineAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                mAnimatingUnderlineWidth = (int) animation.getAnimatedValue();
-                int left = (mUnderlineWidth + mUnderlineGap) * (mText.size() - 1);
-                int bottom = getHeight();
-                invalidate(left, bottom - mUnderlineHeight, left + mUnderlineWidth, bottom);
-            }
-        });
     }
 
     public void setCodeCount(@IntRange(from = 1) int codeCount) {
@@ -252,15 +258,29 @@ public class CodeInputView extends View {
     }
 
     private void startUnderlineAnimation() {
-        mUnderlineAnimator.setIntValues(0, mUnderlineWidth);
-        mUnderlineAnimator.start();
+        mUnderlineAnimationDuration = MotionPolicy.getInstance(getContext()).scaleDuration(UNDERLINE_ANIMATION_DURATION);
+        if (mUnderlineAnimationDuration <= 0) {
+            stopUnderlineAnimation();
+            invalidateUnderline();
+            return;
+        }
+        mUnderlineAnimationStartTime = -1;
+        mAnimatingUnderlineWidth = 0;
+        FrameClock.getInstance().subscribe(mUnderlineFrameCallback);
+        invalidateUnderline();
     }
 
     private void stopUnderlineAnimation() {
-        mUnderlineAnimator.cancel();
+        FrameClock.getInstance().unsubscribe(mUnderlineFrameCallback);
         mAnimatingUnderlineWidth = -1;
     }
 
+    private void invalidateUnderline() {
+        int left = (mUnderlineWidth + mUnderlineGap) * (mText.size() - 1);
+        int bottom = getHeight();
+        invalidate(left, bottom - mUnderlineHeight, left + mUnderlineWidth, bottom);
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         mTextPaint.setTextSize(mTextSize);
@@ -3,7 +3,6 @@ package org.xjy.android.nebula.widget;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.RectF;
 import android.graphics.Shader;
@@ -13,6 +12,7 @@ import android.view.MotionEvent;
 import android.view.View;
 
 import org.xjy.android.common.DimensionUtils;
+import org.xjy.android.common.ShaderCache;
 
 public class ColorPicker extends View {
     private static final int[] COLORS = new int[] {0xFFFF0000, 0xFFFFFF00, 0xFF00FF00, 0xFF00FFFF, 0xFF0000FF, 0xFFFF00FF, 0xFFFF0000};
@@ -23,12 +23,12 @@ public class ColorPicker extends View {
     private float mBarHeight;
     private Paint mHueBarPaint;
     private Paint mValueBarPaint;
+    private Paint mValueShadePaint;
     private Paint mThumbPaint;
     private RectF mHueBarRectF;
     private RectF mValueBarRectF;
     private float mHueThumbCenterX;
     private float mValueThumbCenterX;
-    private Shader mValueBarShader;
 
     private float[] mHue = new float[]{0f, 1f, 1f};
     private float[] mHSVColor = new float[3];
@@ -60,6 +60,7 @@ public class ColorPicker extends View {
         mHueBarPaint.setStyle(Paint.Style.STROKE);
         mHueBarPaint.setStrokeWidth(mBarHeight);
         mValueBarPaint = new Paint(mHueBarPaint);
+        mValueShadePaint = new Paint(mHueBarPaint);
         mThumbPaint = new Paint();
         mThumbPaint.setAntiAlias(true);
 
@@ -74,8 +75,7 @@ public class ColorPicker extends View {
         if (mBarWidth > 0) {
             mHueThumbCenterX = mBarWidth * (mHSVColor[0] / 360) + mThumbRadius;
             mValueThumbCenterX = mBarWidth * mHSVColor[2] + mThumbRadius;
-            mValueBarShader = new LinearGradient(mValueBarRectF.left, mValueBarRectF.top, mValueBarRectF.right, mValueBarRectF.bottom, new int[]{Color.BLACK, Color.HSVToColor(mHue)}, null, Shader.TileMode.CLAMP);
-            mValueBarPaint.setShader(mValueBarShader);
+            mValueBarPaint.setColor(Color.HSVToColor(mHue));
             invalidate();
         }
     }
@@ -106,10 +106,10 @@ public class ColorPicker extends View {
         mBarWidth = (int) (mHueBarRectF.right - mHueBarRectF.left);
         mHueThumbCenterX = mBarWidth * (mHSVColor[0] / 360) + mThumbRadius;
         mValueThumbCenterX = mBarWidth * mHSVColor[2] + mThumbRadius;
-        Shader hueBarShader = new LinearGradient(mHueBarRectF.left, mHueBarRectF.top, mHueBarRectF.right, mHueBarRectF.bottom, COLORS, null, Shader.TileMode.CLAMP);
-        mValueBarShader = new LinearGradient(mValueBarRectF.left, mValueBarRectF.top, mValueBarRectF.right, mValueBarRectF.bottom, new int[]{Color.BLACK, Color.HSVToColor(mHue)}, null, Shader.TileMode.CLAMP);
-        mHueBarPaint.setShader(hueBarShader);
-        mValueBarPaint.setShader(mValueBarShader);
+        mHueBarPaint.setShader(ShaderCache.getLinearGradient(mHueBarRectF.left, mHueBarRectF.top, mHueBarRectF.right, mHueBarRectF.bottom, COLORS, null, Shader.TileMode.CLAMP));
+        mValueBarPaint.setColor(Color.HSVToColor(mHue));
+        //black to transparent over the hue color is the black to hue gradient, and doesn't change with the hue
+        mValueShadePaint.setShader(ShaderCache.getLinearGradient(mValueBarRectF.left, mValueBarRectF.top, mValueBarRectF.right, mValueBarRectF.bottom, Color.BLACK, Color.TRANSPARENT, Shader.TileMode.CLAMP));
     }
 
     @Override
@@ -120,6 +120,7 @@ public class ColorPicker extends View {
 
         //value bar
         canvas.drawRoundRect(mValueBarRectF, mBarHeight / 2, mBarHeight / 2, mValueBarPaint);
+        canvas.drawRoundRect(mValueBarRectF, mBarHeight / 2, mBarHeight / 2, mValueShadePaint);
 
         //hue bar thumb
         canvas.drawCircle(mHueThumbCenterX, mThumbRadius, mThumbRadius, mThumbPaint);
@@ -138,8 +139,7 @@ public class ColorPicker extends View {
                 if (x >= mHueBarRectF.left && x <= mHueBarRectF.right && y <= mThumbRadius * 2) {
                     mHueThumbCenterX = x;
                     mHue[0] = (x - mThumbRadius) / mBarWidth * 360;
-                    mValueBarShader = new LinearGradient(mValueBarRectF.left, mValueBarRectF.top, mValueBarRectF.right, mValueBarRectF.bottom, new int[]{Color.BLACK, Color.HSVToColor(mHue)}, null, Shader.TileMode.CLAMP);
-                    mValueBarPaint.setShader(mValueBarShader);
+                    mValueBarPaint.setColor(Color.HSVToColor(mHue));
                     mHSVColor[0] = mHue[0];
                 } else if (x >= mValueBarRectF.left && x < mValueBarRectF.right && y >= mHeight - mThumbRadius * 2) {
                     mValueThumbCenterX = x;
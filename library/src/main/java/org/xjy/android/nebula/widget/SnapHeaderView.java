@@ -8,10 +8,12 @@ import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
-import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 import android.widget.Scroller;
 
+import org.xjy.android.nebula.animation.FrameClock;
+import org.xjy.android.nebula.animation.LutInterpolator;
+
 import java.util.ArrayList;
 
 import androidx.annotation.AttrRes;
@@ -25,14 +27,14 @@ public class SnapHeaderView extends FrameLayout {
 
     private static final int MAX_SETTLE_DURATION = 600; // ms
 
-    private static final Interpolator sInterpolator = new Interpolator() {
+    private static final LutInterpolator sInterpolator = LutInterpolator.QUINTIC_OUT;
+    private Scroller mScroller;
+    private final FrameClock.Callback mSettleFrameCallback = new FrameClock.Callback() {
         @Override
-        public float getInterpolation(float t) {
-            t -= 1.0f;
-            return t * t * t * t * t + 1.0f;
+        public void onFrame(long frameTime) {
+            settle();
         }
     };
-    private Scroller mScroller;
     private float mTouchSlop;
 
     private View mHeader;
@@ -105,7 +107,7 @@ public class SnapHeaderView extends FrameLayout {
 
     public void reset() {
         if (mHeader != null) {
-            mScroller.abortAnimation();
+            abortSettle();
             mScrollState = SCROLL_STATE_IDLE;
             updateTranslateY(-mHeaderHeight);
         }
@@ -131,7 +133,7 @@ public class SnapHeaderView extends FrameLayout {
                 mLastX = ev.getX();
                 mLastY = ev.getY();
                 if (mScrollState == SCROLL_STATE_SETTLING) {
-                    mScroller.abortAnimation();
+                    abortSettle();
                     getParent().requestDisallowInterceptTouchEvent(true);
                     mScrollState = SCROLL_STATE_DRAGGING;
                 }
@@ -203,23 +205,9 @@ public class SnapHeaderView extends FrameLayout {
         return true;
     }
 
-    @Override
-    public void computeScroll() {
-        if (!mScroller.isFinished() && mScroller.computeScrollOffset()) {
-            int y = mScroller.getCurrY();
-            updateTranslateY(y);
-            postInvalidateOnAnimation();
-            return;
-        }
-        if (mScrollState == SCROLL_STATE_SETTLING) {
-            updateTranslateY(mHeaderTranslateY > -mHeaderHeight / 2f ? 0 : -mHeaderHeight);
-            mScrollState = SCROLL_STATE_IDLE;
-        }
-    }
-
     @Override
     protected void onDetachedFromWindow() {
-        mScroller.abortAnimation();
+        abortSettle();
         super.onDetachedFromWindow();
     }
 
@@ -275,12 +263,30 @@ public class SnapHeaderView extends FrameLayout {
         }
     }
 
+    private void settle() {
+        if (!mScroller.isFinished() && mScroller.computeScrollOffset()) {
+            int y = mScroller.getCurrY();
+            updateTranslateY(y);
+            return;
+        }
+        FrameClock.getInstance().unsubscribe(mSettleFrameCallback);
+        if (mScrollState == SCROLL_STATE_SETTLING) {
+            updateTranslateY(mHeaderTranslateY > -mHeaderHeight / 2f ? 0 : -mHeaderHeight);
+            mScrollState = SCROLL_STATE_IDLE;
+        }
+    }
+
+    private void abortSettle() {
+        mScroller.abortAnimation();
+        FrameClock.getInstance().unsubscribe(mSettleFrameCallback);
+    }
+
     private void scroll() {
         mScrollState = SCROLL_STATE_SETTLING;
         float sy = mHeaderTranslateY;
         float dy = (mHeaderTranslateY < -mHeaderHeight / 2f ? -mHeaderHeight : 0) - sy;
         mScroller.startScroll(0, (int) sy, 0, (int) dy, (int) (Math.abs(dy) / mHeaderHeight * MAX_SETTLE_DURATION));
-        postInvalidateOnAnimation();
+        FrameClock.getInstance().subscribe(mSettleFrameCallback);
     }
 
     public interface OnHeadChangeListener {
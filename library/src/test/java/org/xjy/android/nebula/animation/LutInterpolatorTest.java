@@ -0,0 +1,110 @@
+package org.xjy.android.nebula.animation;
+
+import android.view.animation.Interpolator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LutInterpolatorTest {
+    private static final float TOLERANCE = 1e-4f;
+    private static final int STEPS = 10000;
+
+    @Test
+    public void accelerateDecelerate_matchesCurve() {
+        assertMatches(new Interpolator() {
+            @Override
+            public float getInterpolation(float input) {
+                return (float) (Math.cos((input + 1) * Math.PI) / 2) + 0.5f;
+            }
+        }, LutInterpolator.ACCELERATE_DECELERATE);
+    }
+
+    @Test
+    public void quinticOut_matchesCurve() {
+        assertMatches(new Interpolator() {
+            @Override
+            public float getInterpolation(float t) {
+                t -= 1.0f;
+                return t * t * t * t * t + 1.0f;
+            }
+        }, LutInterpolator.QUINTIC_OUT);
+    }
+
+    @Test
+    public void cubicBezier_matchesCurve() {
+        assertMatches(new CubicBezier(0.6f, 0, 0.4f, 1), LutInterpolator.ofCubicBezier(0.6f, 0, 0.4f, 1));
+        assertMatches(new CubicBezier(0.4f, 0, 0.2f, 1), LutInterpolator.ofCubicBezier(0.4f, 0, 0.2f, 1));
+        assertMatches(new CubicBezier(0, 0, 1, 1), LutInterpolator.ofCubicBezier(0, 0, 1, 1));
+    }
+
+    @Test
+    public void cubicBezier_isMonotonic() {
+        LutInterpolator interpolator = LutInterpolator.ofCubicBezier(0.6f, 0, 0.4f, 1);
+        float last = interpolator.getInterpolation(0);
+        for (int i = 1; i <= STEPS; i++) {
+            float value = interpolator.getInterpolation((float) i / STEPS);
+            assertTrue(value >= last);
+            last = value;
+        }
+    }
+
+    @Test
+    public void input_isClamped() {
+        LutInterpolator interpolator = LutInterpolator.QUINTIC_OUT;
+        assertEquals(0f, interpolator.getInterpolation(-1f), 0f);
+        assertEquals(0f, interpolator.getInterpolation(0f), 0f);
+        assertEquals(1f, interpolator.getInterpolation(1f), 0f);
+        assertEquals(1f, interpolator.getInterpolation(2f), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cubicBezier_rejectsNonMonotonicControlPoints() {
+        LutInterpolator.ofCubicBezier(1.5f, 0, 0.4f, 1);
+    }
+
+    private static void assertMatches(Interpolator expected, Interpolator actual) {
+        for (int i = 0; i <= STEPS; i++) {
+            float input = (float) i / STEPS;
+            assertEquals("input " + input, expected.getInterpolation(input), actual.getInterpolation(input), TOLERANCE);
+        }
+    }
+
+    /**
+     * Reference cubic bezier, solved by plain bisection at every call.
+     */
+    private static class CubicBezier implements Interpolator {
+        private final double mX1;
+        private final double mY1;
+        private final double mX2;
+        private final double mY2;
+
+        CubicBezier(double x1, double y1, double x2, double y2) {
+            mX1 = x1;
+            mY1 = y1;
+            mX2 = x2;
+            mY2 = y2;
+        }
+
+        @Override
+        public float getInterpolation(float input) {
+            double low = 0;
+            double high = 1;
+            for (int i = 0; i < 60; i++) {
+                double t = (low + high) / 2;
+                if (evaluate(t, mX1, mX2) < input) {
+                    low = t;
+                } else {
+                    high = t;
+                }
+            }
+            return (float) evaluate((low + high) / 2, mY1, mY2);
+        }
+
+        private static double evaluate(double t, double p1, double p2) {
+            double u = 1 - t;
+            return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+        }
+    }
+}